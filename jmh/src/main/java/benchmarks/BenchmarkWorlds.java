@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import engine.core.MarioWorld;
+import engine.helper.Assets;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+/**
+ * The worlds the engine benchmarks measure. The worlds are played for a few ticks with fixed actions
+ * before they are measured so the first enemies are spawned.
+ */
+final class BenchmarkWorlds {
+    // ticks played before the world is measured
+    static final int START_TICKS = 40;
+    static final int[] ACTIONS = new int[1024];
+    private static boolean assetsLoaded;
+
+    static {
+        Random random = new Random(0);
+        for (int i = 0; i < ACTIONS.length; i++) {
+            ACTIONS[i] = MarioActions.RIGHT.getMask() | MarioActions.SPEED.getMask();
+            if (random.nextInt(3) == 0) {
+                ACTIONS[i] |= MarioActions.JUMP.getMask();
+            }
+        }
+    }
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * Get a graphics configuration of images in memory, it works without a display
+     */
+    static GraphicsConfiguration getGraphicsConfiguration() {
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics().getDeviceConfiguration();
+    }
+
+    /**
+     * Read a level file, the path is relative to the folder the benchmarks are started from
+     *
+     * @param level the path of the level file
+     * @return the level text
+     */
+    static String readLevel(String level) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(level)));
+    }
+
+    /**
+     * Create a world the same way as the game does and play it for a few ticks
+     *
+     * @param level      the level text
+     * @param marioState the mario state (0 small, 1 large, 2 fire)
+     * @param visuals    true to load the graphics of the world
+     * @return the world after START_TICKS ticks or after the game is over
+     */
+    static MarioWorld createWorld(String level, int marioState, boolean visuals) {
+        MarioWorld world = new MarioWorld(null);
+        world.visuals = visuals;
+        if (visuals && !assetsLoaded) {
+            Assets.init(getGraphicsConfiguration());
+            assetsLoaded = true;
+        }
+        world.initializeLevel(level, 1000000);
+        if (visuals) {
+            world.initializeVisuals(getGraphicsConfiguration());
+        }
+        world.mario.isLarge = marioState > 0;
+        world.mario.isFire = marioState > 1;
+        world.update(0);
+        for (int i = 0; i < START_TICKS && world.gameStatus == GameStatus.RUNNING; i++) {
+            world.update(ACTIONS[i]);
+        }
+        return world;
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import engine.core.MarioLevel;
+
+/**
+ * Throughput of parsing a level without its graphics, it doesn't depend on the mario state. See
+ * WorldBenchmarks for how the benchmarks are run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LevelBenchmarks {
+    @Param({"levels/ge/lvl-1.txt", "levels/hopper/lvl-1.txt", "levels/notch/lvl-1.txt",
+            "levels/notchParam/lvl-1.txt", "levels/notchParamRand/lvl-1.txt", "levels/ore/lvl-1.txt",
+            "levels/original/lvl-1.txt", "levels/patternCount/lvl-1.txt", "levels/patternOccur/lvl-1.txt",
+            "levels/patternWeightCount/lvl-1.txt"})
+    public String level;
+
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        this.text = BenchmarkWorlds.readLevel(this.level);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        blackhole.consume(new MarioLevel(this.text, false));
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioWorld;
+
+/**
+ * Throughput of the observation builders of the forward model, both the ones that return new arrays and
+ * the ones that fill a buffer, on a world that doesn't change. See WorldBenchmarks for how the benchmarks
+ * are run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObservationBenchmarks {
+    @Param({"levels/ge/lvl-1.txt", "levels/hopper/lvl-1.txt", "levels/notch/lvl-1.txt",
+            "levels/notchParam/lvl-1.txt", "levels/notchParamRand/lvl-1.txt", "levels/ore/lvl-1.txt",
+            "levels/original/lvl-1.txt", "levels/patternCount/lvl-1.txt", "levels/patternOccur/lvl-1.txt",
+            "levels/patternWeightCount/lvl-1.txt"})
+    public String level;
+
+    @Param({"0", "1", "2"})
+    public int marioState;
+
+    private MarioWorld world;
+    private MarioForwardModel model;
+    private int[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        this.world = BenchmarkWorlds.createWorld(BenchmarkWorlds.readLevel(this.level), this.marioState, false);
+        this.model = new MarioForwardModel(this.world);
+        this.buffer = new int[4 * MarioGame.tileWidth * MarioGame.tileHeight];
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.world.release();
+    }
+
+    @Benchmark
+    public void getMarioSceneObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getMarioSceneObservation());
+    }
+
+    @Benchmark
+    public void getMarioEnemiesObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getMarioEnemiesObservation());
+    }
+
+    @Benchmark
+    public void getMarioCompleteObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getMarioCompleteObservation());
+    }
+
+    @Benchmark
+    public void getScreenSceneObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getScreenSceneObservation());
+    }
+
+    @Benchmark
+    public void getScreenEnemiesObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getScreenEnemiesObservation());
+    }
+
+    @Benchmark
+    public void getScreenCompleteObservation(Blackhole blackhole) {
+        blackhole.consume(this.model.getScreenCompleteObservation());
+    }
+
+    @Benchmark
+    public void getMarioObservationsBuffer(Blackhole blackhole) {
+        this.model.getMarioObservations(1, 0, this.buffer, 0);
+        blackhole.consume(this.buffer);
+    }
+
+    @Benchmark
+    public void getScreenObservationsBuffer(Blackhole blackhole) {
+        this.model.getScreenObservations(1, 0, this.buffer, 0);
+        blackhole.consume(this.buffer);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import engine.core.MarioGame;
+import engine.core.MarioRender;
+import engine.core.MarioWorld;
+
+/**
+ * Throughput of rendering a world and of the RGB observation of the gym bridge. The sprite sheets are
+ * loaded from the class path and the world is rendered to images in memory, so the benchmarks also run
+ * without a display. See WorldBenchmarks for how the benchmarks are run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmarks {
+    @Param({"levels/ge/lvl-1.txt", "levels/hopper/lvl-1.txt", "levels/notch/lvl-1.txt",
+            "levels/notchParam/lvl-1.txt", "levels/notchParamRand/lvl-1.txt", "levels/ore/lvl-1.txt",
+            "levels/original/lvl-1.txt", "levels/patternCount/lvl-1.txt", "levels/patternOccur/lvl-1.txt",
+            "levels/patternWeightCount/lvl-1.txt"})
+    public String level;
+
+    @Param({"0", "1", "2"})
+    public int marioState;
+
+    private MarioWorld world;
+    private MarioRender render;
+    private BufferedImage image;
+    private Graphics screen;
+    private Graphics imageGraphics;
+    private ByteBuffer pixels;
+
+    @Setup
+    public void setup() throws IOException {
+        this.world = BenchmarkWorlds.createWorld(BenchmarkWorlds.readLevel(this.level), this.marioState, true);
+        this.render = new MarioRender(1);
+        this.image = new BufferedImage(MarioGame.width, MarioGame.height, BufferedImage.TYPE_INT_RGB);
+        this.imageGraphics = this.image.getGraphics();
+        this.screen = new BufferedImage(MarioGame.width, MarioGame.height, BufferedImage.TYPE_INT_RGB).getGraphics();
+        this.pixels = ByteBuffer.allocateDirect(Integer.SIZE / Byte.SIZE * MarioGame.height * MarioGame.width * 3);
+        this.pixels.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @TearDown
+    public void tearDown() {
+        // the sprites of the world have graphics, they are not given to the pool of headless copies
+        this.imageGraphics.dispose();
+        this.screen.dispose();
+        this.world = null;
+    }
+
+    @Benchmark
+    public void renderWorld(Blackhole blackhole) {
+        this.render.renderWorld(this.world, this.image, this.screen, this.imageGraphics);
+        blackhole.consume(this.image.getRGB(0, 0));
+    }
+
+    @Benchmark
+    public void computeObservationRGB(Blackhole blackhole) {
+        this.render.renderWorld(this.world, this.image, this.screen, this.imageGraphics);
+        MarioGame.writeObservationRGB(this.image, this.pixels);
+        blackhole.consume(this.pixels);
+    }
+}
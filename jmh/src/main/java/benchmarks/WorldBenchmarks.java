@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+
+/**
+ * Throughput of the headless world update, the world clone and the forward model advance. The played
+ * copy of the world is replaced by a new copy when its game is over.
+ * <p>
+ * Build with mvn package and run from the folder of the levels, for example:
+ * java -jar jmh/target/benchmarks.jar -prof gc -p level=levels/original/lvl-1.txt -p marioState=0
+ * The gc profiler reports the bytes allocated per operation as gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldBenchmarks {
+    @Param({"levels/ge/lvl-1.txt", "levels/hopper/lvl-1.txt", "levels/notch/lvl-1.txt",
+            "levels/notchParam/lvl-1.txt", "levels/notchParamRand/lvl-1.txt", "levels/ore/lvl-1.txt",
+            "levels/original/lvl-1.txt", "levels/patternCount/lvl-1.txt", "levels/patternOccur/lvl-1.txt",
+            "levels/patternWeightCount/lvl-1.txt"})
+    public String level;
+
+    @Param({"0", "1", "2"})
+    public int marioState;
+
+    private MarioWorld start;
+    private MarioWorld world;
+    private MarioForwardModel model;
+    private int tick;
+
+    @Setup
+    public void setup() throws IOException {
+        this.start = BenchmarkWorlds.createWorld(BenchmarkWorlds.readLevel(this.level), this.marioState, false);
+        this.world = this.start.clone();
+        this.model = new MarioForwardModel(this.world);
+        this.tick = BenchmarkWorlds.START_TICKS;
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.world.release();
+        this.start.release();
+    }
+
+    private int nextAction() {
+        this.tick += 1;
+        return BenchmarkWorlds.ACTIONS[this.tick % BenchmarkWorlds.ACTIONS.length];
+    }
+
+    private void restartIfOver() {
+        if (this.world.gameStatus != GameStatus.RUNNING) {
+            this.world.release();
+            this.world = this.start.clone();
+            this.model = new MarioForwardModel(this.world);
+            this.tick = BenchmarkWorlds.START_TICKS;
+        }
+    }
+
+    @Benchmark
+    public void update(Blackhole blackhole) {
+        this.restartIfOver();
+        this.world.update(this.nextAction());
+        blackhole.consume(this.world.currentTick);
+    }
+
+    @Benchmark
+    public void cloneWorld(Blackhole blackhole) {
+        MarioWorld copy = this.start.clone();
+        blackhole.consume(copy.currentTick);
+        copy.release();
+    }
+
+    @Benchmark
+    public void advance(Blackhole blackhole) {
+        this.restartIfOver();
+        this.model.advance(this.nextAction());
+        blackhole.consume(this.model.getRemainingTime());
+    }
+}
@@ -0,0 +1,171 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import engine.core.MarioAgent;
+import engine.core.MarioGame;
+import engine.core.MarioResult;
+import engine.helper.GameStatus;
+
+/**
+ * Plays the bundled agents on a fixed set of levels with a list of fixed agent budgets and reports for
+ * every agent and budget: the win rate, the average completion, the forward model advance and clone calls
+ * of a decision, the forward model ticks per second while the agent decides and the decision latency
+ * percentiles.
+ * <p>
+ * A budget of 0 gives the agent the normal wall clock time of MarioGame.maxTime milliseconds for every
+ * decision. A positive budget is a simulation budget of that many forward model advance and clone calls,
+ * so the agent makes the same decisions on any machine. The levels are drawn from the level folders with
+ * a seeded random generator, so every run plays the same levels. Agents that use an unseeded random
+ * generator (random and sergeyPolikarpov) still play differently on every run.
+ * <p>
+ * Arguments, all optional:
+ * <ul>
+ * <li>-a names: the agent packages (all the bundled agents except human and doNothing)</li>
+ * <li>-b budgets: the budgets (0,200,1000)</li>
+ * <li>-c folders: the level folders (./levels/original/)</li>
+ * <li>-n count: levels drawn from every folder (5)</li>
+ * <li>-s seed: the seed that draws the levels (42)</li>
+ * <li>-t seconds: the game time of every level (20)</li>
+ * </ul>
+ */
+public class AgentBenchmarks {
+    private static final String[] AGENTS = new String[]{"robinBaumgarten", "andySloane", "spencerSchumann",
+            "sergeyPolikarpov", "glennHartmann", "michal", "trondEllingsen", "sergeyKarakovskiy", "random"};
+
+    /**
+     * Create a new agent of one of the bundled agent packages
+     *
+     * @param name the package of the agent in the agents package
+     * @return a new agent
+     */
+    public static MarioAgent createAgent(String name) {
+        switch (name) {
+            case "robinBaumgarten":
+                return new agents.robinBaumgarten.Agent();
+            case "andySloane":
+                return new agents.andySloane.Agent();
+            case "spencerSchumann":
+                return new agents.spencerSchumann.Agent();
+            case "sergeyPolikarpov":
+                return new agents.sergeyPolikarpov.Agent();
+            case "glennHartmann":
+                return new agents.glennHartmann.Agent();
+            case "michal":
+                return new agents.michal.Agent();
+            case "trondEllingsen":
+                return new agents.trondEllingsen.Agent();
+            case "sergeyKarakovskiy":
+                return new agents.sergeyKarakovskiy.Agent();
+            case "random":
+                return new agents.random.Agent();
+            case "doNothing":
+                return new agents.doNothing.Agent();
+            default:
+                throw new IllegalArgumentException("Unknown agent: " + name);
+        }
+    }
+
+    /**
+     * Draw the same levels from a folder for the same seed
+     *
+     * @param folder the level folder
+     * @param count  the number of levels, all the levels if the folder has fewer
+     * @param random the generator that draws the levels
+     * @return the level files sorted by name
+     */
+    private static ArrayList<Path> drawLevels(Path folder, int count, Random random) throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.txt")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        Collections.shuffle(files, random);
+        ArrayList<Path> levels = new ArrayList<>(files.subList(0, Math.min(count, files.size())));
+        Collections.sort(levels);
+        return levels;
+    }
+
+    private static ArrayList<String> split(String value) {
+        ArrayList<String> values = new ArrayList<>();
+        Collections.addAll(values, value.split(","));
+        return values;
+    }
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<String> agentNames = new ArrayList<>();
+        Collections.addAll(agentNames, AGENTS);
+        ArrayList<String> budgets = split("0,200,1000");
+        ArrayList<String> folders = split("./levels/original/");
+        int count = 5;
+        long seed = 42;
+        int timer = 20;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            if (args[i].equals("-a")) {
+                agentNames = split(args[i + 1]);
+            } else if (args[i].equals("-b")) {
+                budgets = split(args[i + 1]);
+            } else if (args[i].equals("-c")) {
+                folders = split(args[i + 1]);
+            } else if (args[i].equals("-n")) {
+                count = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-s")) {
+                seed = Long.parseLong(args[i + 1]);
+            } else if (args[i].equals("-t")) {
+                timer = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Random random = new Random(seed);
+        ArrayList<Path> levelFiles = new ArrayList<>();
+        for (String folder : folders) {
+            levelFiles.addAll(drawLevels(Paths.get(folder), count, random));
+        }
+        ArrayList<String> levels = new ArrayList<>();
+        for (Path file : levelFiles) {
+            levels.add(new String(Files.readAllBytes(file)));
+        }
+        System.out.println("Levels (seed " + seed + "): " + levelFiles);
+
+        System.out.println(String.format("%-18s %7s %6s %6s %6s %9s %9s %9s %12s %9s %9s %9s %9s", "Agent",
+                "Budget", "Games", "Win%", "Compl", "Decisions", "Adv/dec", "Clone/dec", "FM ticks/s", "p50 ms",
+                "p90 ms", "p99 ms", "max ms"));
+        for (String agentName : agentNames) {
+            for (String budgetValue : budgets) {
+                long budget = Long.parseLong(budgetValue);
+                MarioGame game = new MarioGame(null);
+                game.setSimulationBudget(budget, 1, 1);
+                game.setKeepGameEvents(false);
+                game.setAgentEventsOutput(false, null);
+                MeasuredAgent agent = new MeasuredAgent(createAgent(agentName));
+                int wins = 0;
+                float completion = 0;
+                for (String level : levels) {
+                    MarioResult result = game.runGame(agent, level, timer, 0, false);
+                    if (result.getGameStatus() == GameStatus.WIN) {
+                        wins += 1;
+                    }
+                    completion += result.getCompletionPercentage();
+                }
+                int games = Math.max(levels.size(), 1);
+                System.out.println(String.format("%-18s %7s %6d %6.1f %6.3f %9d %9.1f %9.1f %12.0f %9.3f %9.3f %9.3f %9.3f",
+                        agentName, budget > 0 ? budgetValue : "wall", levels.size(), 100f * wins / games,
+                        completion / games, agent.getDecisions(), agent.getAdvancesPerDecision(),
+                        agent.getClonesPerDecision(), agent.getTicksPerSecond(), agent.getLatencyPercentile(50) / 1e6,
+                        agent.getLatencyPercentile(90) / 1e6, agent.getLatencyPercentile(99) / 1e6,
+                        agent.getLatencyPercentile(100) / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+/**
+ * Measures the bytes allocated per tick by the headless game loop on every level of every corpus in the
+ * levels folder. Two operations are measured on each level:
+ * <ul>
+ * <li>update: MarioWorld.update of the game world</li>
+ * <li>clone+advance: MarioForwardModel.clone of the game, one advance of the copy and release of the
+ * copy, the way a search agent uses the forward model</li>
+ * </ul>
+ * Mario runs right and holds jump for random lengths. When he dies the level is rewound to a checkpoint
+ * taken at least REWIND_TICKS earlier, further back when he dies again without getting further, and played
+ * on with other jumps. A level that is won before the tick floor is played again from the start, so the
+ * update of every level is measured for at least the tick floor. A level where mario still dies after
+ * MAX_REWINDS rewinds ends early and is reported.
+ * <p>
+ * Every level is played again until two plays allocate the same bytes (at most MAX_PLAYS times) and the
+ * lowest bytes of the plays are reported, so only the steady state of the game loop is measured and not
+ * the growth of the pools or the compilation of new code paths. The harness exits with status 1 if the
+ * average of any operation on any level is over its budget.
+ * <p>
+ * Arguments (all optional, in order): levels folder (./levels/), update budget in bytes per tick (1),
+ * clone+advance budget in bytes per tick (256), max ticks per level (3000), max levels per corpus (0 for
+ * all the levels), tick floor per level (1000)
+ */
+public class AllocationHarness {
+    private static final int CHECKPOINT_TICKS = 24;
+    private static final int CHECKPOINTS = 8;
+    private static final int REWIND_TICKS = 48;
+    private static final int MAX_REWINDS = 200;
+    private static final int MAX_PLAYS = 8;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The measurements of one play of a level
+     */
+    private static class LevelPlay {
+        private long updateBytes;
+        private long cloneBytes;
+        private int ticks;
+        private int rewinds;
+        private int wins;
+        private boolean endedEarly;
+        private float completion;
+    }
+
+    private static long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static ArrayList<Path> listFiles(Path folder, boolean directories) throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+            for (Path file : stream) {
+                if (directories ? Files.isDirectory(file) : file.toString().endsWith(".txt")) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Run right and hold jump for a random number of ticks, so mario makes short and long jumps
+     *
+     * @param random the generator of the play
+     * @param jump   the ticks jump is still held, updated by the call
+     * @return the action mask of the tick
+     */
+    private static int getAction(Random random, int[] jump) {
+        int actions = MarioActions.RIGHT.getMask() | MarioActions.SPEED.getMask();
+        if (jump[0] == 0 && random.nextInt(4) == 0) {
+            jump[0] = 1 + random.nextInt(16);
+        } else if (jump[0] > 0) {
+            jump[0] -= 1;
+            // a released jump button lets mario jump again on the next tick
+            if (jump[0] > 0) {
+                actions |= MarioActions.JUMP.getMask();
+            }
+        }
+        return actions;
+    }
+
+    private static MarioWorld createWorld(String level) {
+        MarioWorld world = new MarioWorld(null);
+        world.initializeLevel(level, 1000000);
+        world.update(0);
+        return world;
+    }
+
+    private static void releaseAll(ArrayList<MarioWorld> worlds, int from) {
+        while (worlds.size() > from) {
+            worlds.remove(worlds.size() - 1).release();
+        }
+    }
+
+    /**
+     * Play copies of a level with the same actions as every other play of the same level, the copies are
+     * released at the end so the next play reuses their objects
+     *
+     * @param start    the world at the start of the level
+     * @param minTicks the tick floor, the level is played again from the start until it is reached
+     * @param maxTicks the max number of ticks
+     * @return the allocated bytes and the ticks of the play
+     */
+    private static LevelPlay playLevel(MarioWorld start, int minTicks, int maxTicks) {
+        LevelPlay play = new LevelPlay();
+        Random random = new Random(0);
+        int[] jump = new int[1];
+        ArrayList<MarioWorld> checkpoints = new ArrayList<>();
+        while (play.ticks < minTicks && !play.endedEarly) {
+            MarioWorld world = start.clone();
+            MarioForwardModel model = new MarioForwardModel(world);
+            int lastCheckpoint = Integer.MIN_VALUE;
+            int rewinds = 0;
+            int deaths = 0;
+            float furthest = 0;
+            while (play.ticks < maxTicks && world.gameStatus != GameStatus.WIN) {
+                if (world.gameStatus != GameStatus.RUNNING) {
+                    if (checkpoints.isEmpty() || rewinds == MAX_REWINDS) {
+                        play.endedEarly = true;
+                        break;
+                    }
+                    // the newest checkpoint far enough before the death, or the oldest one, up to three
+                    // deaths without getting further than before rewind further each time
+                    deaths = world.mario.x > furthest ? 1 : deaths + 1;
+                    furthest = Math.max(furthest, world.mario.x);
+                    int rewindTick = world.currentTick - Math.min(deaths, 3) * REWIND_TICKS;
+                    int index = 0;
+                    for (int i = checkpoints.size() - 1; i > 0; i--) {
+                        if (checkpoints.get(i).currentTick <= rewindTick) {
+                            index = i;
+                            break;
+                        }
+                    }
+                    releaseAll(checkpoints, index + 1);
+                    world.release();
+                    world = checkpoints.get(index).clone();
+                    model = new MarioForwardModel(world);
+                    lastCheckpoint = world.currentTick;
+                    rewinds += 1;
+                    continue;
+                }
+                if (world.currentTick >= lastCheckpoint + CHECKPOINT_TICKS) {
+                    if (checkpoints.size() == CHECKPOINTS) {
+                        checkpoints.remove(0).release();
+                    }
+                    checkpoints.add(world.clone());
+                    lastCheckpoint = world.currentTick;
+                }
+                int actions = getAction(random, jump);
+
+                long before = allocatedBytes();
+                MarioForwardModel copy = model.clone();
+                copy.advance(actions);
+                copy.release();
+                long middle = allocatedBytes();
+                world.update(actions);
+                long end = allocatedBytes();
+
+                play.cloneBytes += middle - before;
+                play.updateBytes += end - middle;
+                play.ticks += 1;
+            }
+            if (world.gameStatus == GameStatus.WIN) {
+                play.wins += 1;
+            }
+            play.rewinds += rewinds;
+            play.completion = Math.max(play.completion, model.getCompletionPercentage());
+            world.release();
+            releaseAll(checkpoints, 0);
+        }
+        return play;
+    }
+
+    /**
+     * Play a level until two plays allocate the same bytes. The lowest bytes of the plays are kept: an
+     * allocation of the game loop shows in every play, a deoptimization or a compilation only in some.
+     *
+     * @return the last play with the lowest bytes of all the plays
+     */
+    private static LevelPlay measureLevel(MarioWorld start, int minTicks, int maxTicks) {
+        LevelPlay previous = playLevel(start, minTicks, maxTicks);
+        LevelPlay play = playLevel(start, minTicks, maxTicks);
+        long updateBytes = Math.min(previous.updateBytes, play.updateBytes);
+        long cloneBytes = Math.min(previous.cloneBytes, play.cloneBytes);
+        for (int i = 2; i < MAX_PLAYS; i++) {
+            if (play.updateBytes == previous.updateBytes && play.cloneBytes == previous.cloneBytes) {
+                break;
+            }
+            previous = play;
+            play = playLevel(start, minTicks, maxTicks);
+            updateBytes = Math.min(updateBytes, play.updateBytes);
+            cloneBytes = Math.min(cloneBytes, play.cloneBytes);
+        }
+        play.updateBytes = updateBytes;
+        play.cloneBytes = cloneBytes;
+        return play;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path folder = Paths.get(args.length > 0 ? args[0] : "./levels/");
+        // an object allocated every tick is at least 16 B/tick, less is a one time allocation of a rare path
+        double updateBudget = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        double cloneBudget = args.length > 2 ? Double.parseDouble(args[2]) : 256;
+        int maxTicks = args.length > 3 ? Integer.parseInt(args[3]) : 3000;
+        int maxLevels = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int minTicks = Math.min(args.length > 5 ? Integer.parseInt(args[5]) : 1000, maxTicks);
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation measurement is not supported by this JVM");
+            System.exit(2);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        ArrayList<Path> corpora = listFiles(folder, true);
+        // compile the game loop before anything is measured
+        if (!corpora.isEmpty() && !listFiles(corpora.get(0), false).isEmpty()) {
+            MarioWorld start = createWorld(new String(Files.readAllBytes(listFiles(corpora.get(0), false).get(0))));
+            for (int i = 0; i < 20; i++) {
+                playLevel(start, minTicks, maxTicks);
+            }
+            start.release();
+        }
+
+        int failures = 0;
+        int endedEarly = 0;
+        for (Path corpus : corpora) {
+            ArrayList<Path> levels = listFiles(corpus, false);
+            if (maxLevels > 0 && levels.size() > maxLevels) {
+                levels = new ArrayList<>(levels.subList(0, maxLevels));
+            }
+            long corpusUpdate = 0;
+            long corpusClone = 0;
+            long corpusTicks = 0;
+            int corpusEndedEarly = 0;
+            for (Path file : levels) {
+                MarioWorld start = createWorld(new String(Files.readAllBytes(file)));
+                LevelPlay play = measureLevel(start, minTicks, maxTicks);
+                start.release();
+                long ticks = Math.max(play.ticks, 1);
+                double update = (double) play.updateBytes / ticks;
+                double clone = (double) play.cloneBytes / ticks;
+                boolean failed = update > updateBudget || clone > cloneBudget;
+                System.out.println(String.format("%-40s update %10.2f B/tick  clone+advance %10.2f B/tick  ticks %5d" +
+                                "  wins %2d  rewinds %3d  completion %5.3f%s%s", folder.relativize(file), update, clone,
+                        play.ticks, play.wins, play.rewinds, play.completion, play.endedEarly ? "  ENDED EARLY" : "",
+                        failed ? "  OVER BUDGET" : ""));
+                if (failed) {
+                    failures += 1;
+                }
+                if (play.endedEarly) {
+                    corpusEndedEarly += 1;
+                }
+                corpusUpdate += play.updateBytes;
+                corpusClone += play.cloneBytes;
+                corpusTicks += play.ticks;
+            }
+            endedEarly += corpusEndedEarly;
+            corpusTicks = Math.max(corpusTicks, 1);
+            System.out.println(String.format("%-40s update %10.2f B/tick  clone+advance %10.2f B/tick  ticks %7d" +
+                            "  ended early %d", "== " + corpus.getFileName() + " (" + levels.size() + " levels)",
+                    (double) corpusUpdate / corpusTicks, (double) corpusClone / corpusTicks, corpusTicks,
+                    corpusEndedEarly));
+        }
+
+        if (endedEarly > 0) {
+            System.out.println(endedEarly + " levels ended early, mario kept dying after " + MAX_REWINDS +
+                    " rewinds");
+        }
+        if (failures > 0) {
+            System.out.println(failures + " levels are over the budget (update " + updateBudget +
+                    " B/tick, clone+advance " + cloneBudget + " B/tick)");
+            System.exit(1);
+        }
+        System.out.println("All levels are within the budget (update " + updateBudget +
+                " B/tick, clone+advance " + cloneBudget + " B/tick)");
+    }
+}
@@ -0,0 +1,116 @@
+package benchmarks;
+
+import java.util.Arrays;
+
+import engine.core.MarioAgent;
+import engine.core.MarioForwardModel;
+import engine.core.MarioTimer;
+
+/**
+ * Wraps an agent and records every decision it makes: how long the decision took and how many forward
+ * model advance and clone calls were charged to its timer. The records are kept over all the games the
+ * wrapper plays.
+ */
+public class MeasuredAgent implements MarioAgent {
+    private final MarioAgent agent;
+
+    private long[] latencies = new long[1024];
+    private int decisions;
+    private long totalLatency;
+    private long advances;
+    private long clones;
+
+    /**
+     * Create a wrapper
+     *
+     * @param agent the agent that makes the decisions
+     */
+    public MeasuredAgent(MarioAgent agent) {
+        this.agent = agent;
+    }
+
+    @Override
+    public void initialize(MarioForwardModel model, MarioTimer timer) {
+        this.agent.initialize(model, timer);
+    }
+
+    @Override
+    public boolean[] getActions(MarioForwardModel model, MarioTimer timer) {
+        long start = System.nanoTime();
+        boolean[] actions = this.agent.getActions(model, timer);
+        this.record(System.nanoTime() - start, timer);
+        return actions;
+    }
+
+    @Override
+    public int getActionMask(MarioForwardModel model, MarioTimer timer) {
+        long start = System.nanoTime();
+        int actions = this.agent.getActionMask(model, timer);
+        this.record(System.nanoTime() - start, timer);
+        return actions;
+    }
+
+    private void record(long latency, MarioTimer timer) {
+        if (this.decisions == this.latencies.length) {
+            this.latencies = Arrays.copyOf(this.latencies, 2 * this.latencies.length);
+        }
+        this.latencies[this.decisions] = latency;
+        this.decisions += 1;
+        this.totalLatency += latency;
+        // the game gives the agent a new or restarted timer for every decision
+        this.advances += timer.getAdvanceCount();
+        this.clones += timer.getCloneCount();
+    }
+
+    @Override
+    public String getAgentName() {
+        return this.agent.getAgentName();
+    }
+
+    public int getDecisions() {
+        return this.decisions;
+    }
+
+    /**
+     * Get the average number of forward model advance calls of a decision
+     *
+     * @return advance calls per decision
+     */
+    public double getAdvancesPerDecision() {
+        return (double) this.advances / Math.max(this.decisions, 1);
+    }
+
+    /**
+     * Get the average number of forward model clone calls of a decision
+     *
+     * @return clone calls per decision
+     */
+    public double getClonesPerDecision() {
+        return (double) this.clones / Math.max(this.decisions, 1);
+    }
+
+    /**
+     * Get the forward model advance calls per second of decision time
+     *
+     * @return simulated ticks per second while the agent was deciding
+     */
+    public double getTicksPerSecond() {
+        return this.totalLatency == 0 ? 0 : this.advances * 1e9 / this.totalLatency;
+    }
+
+    /**
+     * Get a percentile of the decision latencies
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (this.decisions == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(this.latencies, this.decisions);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * this.decisions) - 1;
+        return sorted[Math.max(0, Math.min(index, this.decisions - 1))];
+    }
+}
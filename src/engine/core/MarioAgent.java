@@ -1,5 +1,7 @@
 package engine.core;
 
+import engine.helper.MarioActions;
+
 /**
  * Interface for agents that want to play in the framework
  *
@@ -23,6 +25,18 @@ public interface MarioAgent {
      */
     boolean[] getActions(MarioForwardModel model, MarioTimer timer);
 
+    /**
+     * get mario current actions as a mask, this is what the game calls. Agents that work with action masks
+     * can override it, by default it converts the result of getActions.
+     *
+     * @param model a forward model object so the agent can simulate the future.
+     * @param timer amount of time before the agent has to return the actions.
+     * @return a mask with the bit of every pressed button set (see MarioActions.getMask)
+     */
+    default int getActionMask(MarioForwardModel model, MarioTimer timer) {
+        return MarioActions.toMask(this.getActions(model, timer));
+    }
+
     /**
      * Return the name of the agent that will be displayed in debug purposes
      *
@@ -0,0 +1,199 @@
+package engine.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import engine.helper.OverrunSeverity;
+
+/**
+ * Calls the agent for the game loop and counts the calls that take longer than the deadline. By default
+ * the agent is called on the game thread and the game waits for it like before. When the deadline is
+ * enforced every call runs on a dedicated agent thread, if the agent does not answer before
+ * the deadline it is interrupted and its last actions are used instead. While an interrupted call is
+ * still running the agent is not called again, so one stuck agent can't stall the game.
+ * <p>
+ * The latency of every call is measured in nanoseconds and kept in a histogram, the calls that spent more
+ * than the budget of their timer are counted by severity.
+ */
+public class MarioAgentExecutor {
+    private MarioAgent agent;
+    private long deadline;
+    private ExecutorService executor;
+    private Future<Integer> pendingCall;
+    private int lastActions;
+
+    private int latencyViolations;
+    private long maxLatency;
+    private long initializeLatency;
+    private MarioLatencyHistogram latencies = new MarioLatencyHistogram();
+    private int[] overruns = new int[OverrunSeverity.values().length];
+
+    /**
+     * Create an executor for an agent
+     *
+     * @param agent           the agent that will be called
+     * @param deadline        the maximum nanoseconds for each getActions call
+     * @param enforceDeadline run the agent on its own thread and stop waiting for it after the deadline if
+     *                        it is true, otherwise call the agent on the game thread and only count the
+     *                        calls that are too slow
+     */
+    public MarioAgentExecutor(MarioAgent agent, long deadline, boolean enforceDeadline) {
+        this.agent = agent;
+        this.deadline = deadline;
+        if (enforceDeadline) {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "mario-agent");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * initialize the agent on the game thread
+     *
+     * @param model a forward model object so the agent can simulate or initialize some parameters based on it.
+     * @param timer amount of time before the agent has to return
+     */
+    public void initialize(MarioForwardModel model, MarioTimer timer) {
+        long startTime = System.nanoTime();
+        timer.startOnCurrentThread();
+        this.agent.initialize(model, timer);
+        this.initializeLatency = System.nanoTime() - startTime;
+    }
+
+    /**
+     * get mario current actions from the agent as an action mask
+     *
+     * @param model a forward model object so the agent can simulate the future.
+     * @param timer amount of time before the agent has to return the actions.
+     * @return the agent action mask or its last action mask if it missed the deadline
+     */
+    public int getActionMask(final MarioForwardModel model, final MarioTimer timer) {
+        long startTime = System.nanoTime();
+        if (this.executor == null) {
+            timer.startOnCurrentThread();
+            int actions = this.agent.getActionMask(model, timer);
+            this.recordLatency(System.nanoTime() - startTime, timer);
+            return actions;
+        }
+
+        if (this.pendingCall != null && !this.pendingCall.isDone()) {
+            // the agent is still busy with a call that already missed its deadline
+            this.latencyViolations += 1;
+            return this.lastActions;
+        }
+        this.pendingCall = null;
+        Future<Integer> call = this.executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                timer.startOnCurrentThread();
+                return agent.getActionMask(model, timer);
+            }
+        });
+        try {
+            int actions = call.get(this.deadline, TimeUnit.NANOSECONDS);
+            this.recordLatency(System.nanoTime() - startTime, timer);
+            this.lastActions = actions;
+            return actions;
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            this.pendingCall = call;
+            this.recordLatency(System.nanoTime() - startTime, timer);
+            return this.lastActions;
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            this.pendingCall = call;
+            // the decision is abandoned like a missed deadline, so it counts as a violation either way
+            long latency = System.nanoTime() - startTime;
+            this.recordLatency(latency, timer);
+            if (latency <= this.deadline) {
+                this.latencyViolations += 1;
+            }
+            Thread.currentThread().interrupt();
+            return this.lastActions;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void recordLatency(long latency, MarioTimer timer) {
+        if (latency > this.deadline) {
+            this.latencyViolations += 1;
+        }
+        this.maxLatency = Math.max(this.maxLatency, latency);
+        this.latencies.record(latency);
+        OverrunSeverity severity = OverrunSeverity.getSeverity(timer.getBudgetUsage());
+        if (severity != null) {
+            this.overruns[severity.ordinal()] += 1;
+        }
+    }
+
+    /**
+     * Get the number of getActions calls that took longer than the deadline or were abandoned because the
+     * game thread was interrupted
+     *
+     * @return number of deadline violations
+     */
+    public int getLatencyViolations() {
+        return this.latencyViolations;
+    }
+
+    /**
+     * Get the longest getActions call
+     *
+     * @return the maximum latency in nanoseconds
+     */
+    public long getMaxLatency() {
+        return this.maxLatency;
+    }
+
+    /**
+     * Get the time the agent initialize call took
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getInitializeLatency() {
+        return this.initializeLatency;
+    }
+
+    /**
+     * Get the latencies of all the getActions calls
+     *
+     * @return the histogram of the latencies in nanoseconds
+     */
+    public MarioLatencyHistogram getLatencyHistogram() {
+        return this.latencies;
+    }
+
+    /**
+     * Get the number of getActions calls that spent more than the budget of their timer
+     *
+     * @param severity how much the budget was exceeded
+     * @return number of calls with that severity
+     */
+    public int getBudgetOverruns(OverrunSeverity severity) {
+        return this.overruns[severity.ordinal()];
+    }
+
+    /**
+     * Stop the agent thread, interrupting the agent if it is still running
+     */
+    public void shutdown() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+}
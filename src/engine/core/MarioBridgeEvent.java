@@ -0,0 +1,21 @@
+package engine.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one call of the gym bridge of MarioGame, its duration is the call latency
+ */
+@Name("mario.Bridge")
+@Label("Gym Bridge Call")
+@Category("Mario AI")
+@StackTrace(false)
+public class MarioBridgeEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Tick")
+    int tick;
+}
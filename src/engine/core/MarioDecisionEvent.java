@@ -0,0 +1,33 @@
+package engine.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one agent decision of the game loop, its duration is the agent latency. It is
+ * committed for every tick so it has no stack trace.
+ */
+@Name("mario.Decision")
+@Label("Agent Decision")
+@Category("Mario AI")
+@StackTrace(false)
+@Description("The agent chose the actions of one tick")
+public class MarioDecisionEvent extends jdk.jfr.Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Advances")
+    @Description("Forward model advance calls made for the decision")
+    long advances;
+
+    @Label("Clones")
+    @Description("Forward model clone calls made for the decision")
+    long clones;
+
+    @Label("Actions")
+    @Description("The action mask, see MarioActions.getMask")
+    int actions;
+}
@@ -11,6 +11,25 @@ public abstract class MarioEffect {
     protected MarioImage graphics;
 
     public MarioEffect(float x, float y, float xv, float yv, float xa, float ya, int startIndex, int life) {
+        this.reset(x, y, xv, yv, xa, ya, startIndex, life);
+    }
+
+    protected MarioEffect() {
+    }
+
+    /**
+     * Reset the fields of a released effect to the values of a new effect, the image of the effect is reused
+     *
+     * @param x          the x position of the effect
+     * @param y          the y position of the effect
+     * @param xv         the x speed of the effect
+     * @param yv         the y speed of the effect
+     * @param xa         the x acceleration of the effect
+     * @param ya         the y acceleration of the effect
+     * @param startIndex the first sprite sheet index of the effect
+     * @param life       the number of frames the effect is shown
+     */
+    protected void reset(float x, float y, float xv, float yv, float xa, float ya, int startIndex, int life) {
         this.x = x;
         this.y = y;
         this.xv = xv;
@@ -19,7 +38,14 @@ public abstract class MarioEffect {
         this.ya = ya;
         this.life = life;
 
-        this.graphics = new MarioImage(Assets.particles, startIndex);
+        if (this.graphics == null) {
+            this.graphics = new MarioImage(Assets.particles, startIndex);
+        }
+        this.graphics.index = startIndex;
+        this.graphics.visible = true;
+        this.graphics.alpha = 1;
+        this.graphics.flipX = false;
+        this.graphics.flipY = false;
         this.graphics.width = 16;
         this.graphics.height = 16;
         this.graphics.originX = 8;
@@ -0,0 +1,39 @@
+package engine.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event committed when a game with an agent ends, its duration is the whole game
+ */
+@Name("mario.EpisodeEnd")
+@Label("Episode End")
+@Category("Mario AI")
+@Description("A game with an agent ended")
+public class MarioEpisodeEndEvent extends jdk.jfr.Event {
+    @Label("Level Id")
+    @Description("Hash of the level text")
+    int levelId;
+
+    @Label("Agent")
+    String agentName;
+
+    @Label("Outcome")
+    @Description("The game status at the end of the game")
+    String outcome;
+
+    @Label("Completion")
+    float completion;
+
+    @Label("Ticks")
+    int ticks;
+
+    @Label("Decisions")
+    int decisions;
+
+    @Label("Latency Violations")
+    @Description("Decisions that took longer than the agent deadline")
+    int latencyViolations;
+}
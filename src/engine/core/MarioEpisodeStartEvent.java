@@ -0,0 +1,29 @@
+package engine.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event committed when a game with an agent starts
+ */
+@Name("mario.EpisodeStart")
+@Label("Episode Start")
+@Category("Mario AI")
+@Description("A game with an agent started")
+public class MarioEpisodeStartEvent extends jdk.jfr.Event {
+    @Label("Level Id")
+    @Description("Hash of the level text")
+    int levelId;
+
+    @Label("Level Width")
+    @Description("Width of the level in tiles")
+    int levelWidth;
+
+    @Label("Agent")
+    String agentName;
+
+    @Label("Mario State")
+    int marioState;
+}
@@ -0,0 +1,145 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import engine.helper.EventType;
+
+/**
+ * The events of one game tick stored as primitive arrays. The buffer is cleared and refilled on every
+ * tick, so after the first few ticks adding an event doesn't allocate anything. MarioEvent objects are
+ * only created when getEvents is called. The arrays grow instead of wrapping around like a ring buffer,
+ * so the events of a busy tick are never overwritten before they are read.
+ */
+public class MarioEventBuffer {
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    private int size;
+    private int[] types = new int[8];
+    private int[] params = new int[8];
+    private float[] marioX = new float[8];
+    private float[] marioY = new float[8];
+    private int[] marioStates = new int[8];
+    private int[] times = new int[8];
+    private ArrayList<MarioEvent> events;
+
+    /**
+     * Add an event to the buffer
+     *
+     * @param eventType  the value of the event type (EventType.getValue())
+     * @param eventParam the parameter of the event
+     * @param x          mario x position when the event happened
+     * @param y          mario y position when the event happened
+     * @param state      mario state when the event happened (0 small, 1 large, 2 fire)
+     * @param time       the tick of the event
+     */
+    public void add(int eventType, int eventParam, float x, float y, int state, int time) {
+        if (this.size == this.types.length) {
+            int length = 2 * this.types.length;
+            this.types = Arrays.copyOf(this.types, length);
+            this.params = Arrays.copyOf(this.params, length);
+            this.marioX = Arrays.copyOf(this.marioX, length);
+            this.marioY = Arrays.copyOf(this.marioY, length);
+            this.marioStates = Arrays.copyOf(this.marioStates, length);
+            this.times = Arrays.copyOf(this.times, length);
+        }
+        this.types[this.size] = eventType;
+        this.params[this.size] = eventParam;
+        this.marioX[this.size] = x;
+        this.marioY[this.size] = y;
+        this.marioStates[this.size] = state;
+        this.times[this.size] = time;
+        this.size += 1;
+        this.events = null;
+    }
+
+    /**
+     * Add all the events of another buffer to the end of this buffer
+     *
+     * @param other the buffer to copy the events from
+     */
+    public void addAll(MarioEventBuffer other) {
+        for (int i = 0; i < other.size; i++) {
+            this.add(other.types[i], other.params[i], other.marioX[i], other.marioY[i], other.marioStates[i],
+                    other.times[i]);
+        }
+    }
+
+    /**
+     * Remove all the events, the arrays are kept to be reused
+     */
+    public void clear() {
+        this.size = 0;
+        this.events = null;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getEventType(int index) {
+        return this.types[index];
+    }
+
+    public int getEventParam(int index) {
+        return this.params[index];
+    }
+
+    public float getMarioX(int index) {
+        return this.marioX[index];
+    }
+
+    public float getMarioY(int index) {
+        return this.marioY[index];
+    }
+
+    public int getMarioState(int index) {
+        return this.marioStates[index];
+    }
+
+    public int getTime(int index) {
+        return this.times[index];
+    }
+
+    /**
+     * Check if an event in the buffer matches an event, using the same rule as MarioEvent.equals
+     *
+     * @param eventType  the value of the event type
+     * @param eventParam the parameter of the event, 0 matches any parameter
+     * @return true if one of the events has the same type and parameter
+     */
+    public boolean contains(int eventType, int eventParam) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.types[i] == eventType && (eventParam == 0 || this.params[i] == eventParam)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the MarioEvent object of one event
+     *
+     * @param index the index of the event in the buffer
+     * @return a new MarioEvent with the values of the event
+     */
+    public MarioEvent getEvent(int index) {
+        return new MarioEvent(EVENT_TYPES[this.types[index] - 1], this.params[index], this.marioX[index],
+                this.marioY[index], this.marioStates[index], this.times[index]);
+    }
+
+    /**
+     * Get the events as MarioEvent objects, the list is created on the first call after the buffer changed
+     *
+     * @return an arrayList of the events in the buffer
+     */
+    public ArrayList<MarioEvent> getEvents() {
+        if (this.events == null) {
+            this.events = new ArrayList<>(this.size);
+            for (int i = 0; i < this.size; i++) {
+                this.events.add(this.getEvent(i));
+            }
+        }
+        return this.events;
+    }
+}
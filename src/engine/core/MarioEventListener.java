@@ -0,0 +1,18 @@
+package engine.core;
+
+/**
+ * Receives the events of a MarioWorld as they happen, without creating MarioEvent objects
+ */
+public interface MarioEventListener {
+    /**
+     * Called every time an event is added to the world
+     *
+     * @param eventType  the value of the event type (EventType.getValue())
+     * @param eventParam the parameter of the event
+     * @param marioX     mario x position when the event happened
+     * @param marioY     mario y position when the event happened
+     * @param marioState mario state when the event happened (0 small, 1 large, 2 fire)
+     * @param time       the tick of the event
+     */
+    void onEvent(int eventType, int eventParam, float marioX, float marioY, int marioState, int time);
+}
@@ -1,9 +1,12 @@
 package engine.core;
 
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 
 import engine.helper.EventType;
 import engine.helper.GameStatus;
+import engine.helper.MarioActions;
 import engine.helper.SpriteType;
 
 public class MarioForwardModel {
@@ -64,7 +67,40 @@ public class MarioForwardModel {
     // Enemies Detail 2
     public static final int OBS_ENEMY = 1;
 
+    /**
+     * number of detail levels that have precomputed generalization tables
+     */
+    public static final int OBS_DETAIL_LEVELS = 3;
+    private static final int OBS_TABLE_TILES = 256;
+    private static final int[][] SPRITE_GENERALIZATION = new int[OBS_DETAIL_LEVELS][SpriteType.values().length];
+    private static final int[][] BLOCK_GENERALIZATION = new int[OBS_DETAIL_LEVELS][OBS_TABLE_TILES];
+
+    static {
+        for (int detail = 0; detail < OBS_DETAIL_LEVELS; detail++) {
+            for (SpriteType sprite : SpriteType.values()) {
+                SPRITE_GENERALIZATION[detail][sprite.ordinal()] = computeSpriteTypeGeneralization(sprite, detail);
+            }
+            for (int tile = 0; tile < OBS_TABLE_TILES; tile++) {
+                BLOCK_GENERALIZATION[detail][tile] = computeBlockValueGeneralization(tile, detail);
+            }
+        }
+    }
+
     public static int getSpriteTypeGeneralization(SpriteType sprite, int detail) {
+        if (detail >= 0 && detail < OBS_DETAIL_LEVELS) {
+            return SPRITE_GENERALIZATION[detail][sprite.ordinal()];
+        }
+        return computeSpriteTypeGeneralization(sprite, detail);
+    }
+
+    public static int getBlockValueGeneralization(int tile, int detail) {
+        if (detail >= 0 && detail < OBS_DETAIL_LEVELS && tile >= 0 && tile < OBS_TABLE_TILES) {
+            return BLOCK_GENERALIZATION[detail][tile];
+        }
+        return computeBlockValueGeneralization(tile, detail);
+    }
+
+    private static int computeSpriteTypeGeneralization(SpriteType sprite, int detail) {
         switch (detail) {
             case (0):
                 switch (sprite) {
@@ -114,7 +150,7 @@ public class MarioForwardModel {
         return OBS_UNDEF;
     }
 
-    public static int getBlockValueGeneralization(int tile, int detail) {
+    private static int computeBlockValueGeneralization(int tile, int detail) {
         if (tile == 0) {
             return OBS_NONE;
         }
@@ -204,8 +240,20 @@ public class MarioForwardModel {
      * The height of the observation grid
      */
     public final int obsGridHeight = MarioGame.tileHeight;
+    /**
+     * The number of values in one flat observation grid, the value of tile (obsX, obsY) is stored at
+     * obsX * obsGridHeight + obsY like in the int[][] observations
+     */
+    public final int obsGridSize = MarioGame.tileWidth * MarioGame.tileHeight;
 
     private MarioWorld world;
+    private MarioTimer timer;
+    // true while the world is the live game world, it is only read until the model needs its own copy
+    private boolean sharedWorld;
+    // true until the copy of the game world given to an agent is charged as a clone on the first advance
+    private boolean unchargedCopy;
+    // used to fill IntBuffers that are not backed by an array
+    private int[] observationBuffer;
 
     // stats
     private int fallKill;
@@ -226,13 +274,47 @@ public class MarioForwardModel {
         this.world = world;
     }
 
+    /**
+     * Create a forward model object that charges its advance and clone calls to a timer
+     *
+     * @param world the current level world that is being used.
+     * @param timer the agent timer that is charged for every advance and clone call, the clones of
+     *              this model charge the same timer.
+     */
+    public MarioForwardModel(MarioWorld world, MarioTimer timer) {
+        this.world = world;
+        this.timer = timer;
+    }
+
+    /**
+     * Create the forward model an agent gets for a decision. A shared world is read without copying it
+     * and is cloned the first time the model is advanced, so the world is never changed by the model. The
+     * model should then only be used while the world is not updated by anyone else. Either way the copy
+     * of the game world is charged as one clone on the first advance, so the timer is charged the same
+     * whether the world was copied before or is copied then.
+     *
+     * @param world       the current level world that is being used.
+     * @param timer       the agent timer that is charged for every advance and clone call
+     * @param sharedWorld true if the world must be cloned before the first advance call, false if it is
+     *                    already a copy of the game world
+     */
+    MarioForwardModel(MarioWorld world, MarioTimer timer, boolean sharedWorld) {
+        this.world = world;
+        this.timer = timer;
+        this.sharedWorld = sharedWorld;
+        this.unchargedCopy = true;
+    }
+
     /**
      * Create a clone from the current forward model state
      *
      * @return a clone from the current forward model state
      */
     public MarioForwardModel clone() {
-        MarioForwardModel model = new MarioForwardModel(this.world.clone());
+        if (this.timer != null) {
+            this.timer.chargeClone();
+        }
+        MarioForwardModel model = new MarioForwardModel(this.world.clone(), this.timer);
         model.fallKill = this.fallKill;
         model.stompKill = this.stompKill;
         model.fireKill = this.fireKill;
@@ -243,41 +325,149 @@ public class MarioForwardModel {
         return model;
     }
 
+    /**
+     * Give the world of this model to the pool of the current thread so the next clones can reuse its
+     * objects instead of allocating new ones. It is meant for clones that are not needed anymore, the model
+     * must not be used after it is released. A model that still reads the game world without a copy doesn't
+     * release anything.
+     */
+    public void release() {
+        if (!this.sharedWorld && this.world != null) {
+            this.world.release();
+        }
+        this.world = null;
+    }
+
+    MarioWorld getWorld() {
+        return this.world;
+    }
+
+    private void copySharedWorld() {
+        if (this.unchargedCopy) {
+            this.charge(0, 1);
+            this.unchargedCopy = false;
+        }
+        if (this.sharedWorld) {
+            this.world = this.world.clone();
+            this.sharedWorld = false;
+        }
+    }
+
+    /**
+     * Charge the timer of this model for calls that were answered without running them, like the
+     * transitions of a MarioForwardModelCache
+     *
+     * @param advances the number of advance calls
+     * @param clones   the number of clone calls
+     */
+    void charge(int advances, int clones) {
+        if (this.timer == null) {
+            return;
+        }
+        for (int i = 0; i < advances; i++) {
+            this.timer.chargeAdvance();
+        }
+        for (int i = 0; i < clones; i++) {
+            this.timer.chargeClone();
+        }
+    }
+
+    int[] getStats() {
+        return new int[]{this.fallKill, this.stompKill, this.fireKill, this.shellKill, this.mushrooms, this.flowers,
+                this.breakBlock};
+    }
+
+    void restore(MarioWorld world, int[] statsDelta) {
+        if (this.unchargedCopy) {
+            this.charge(0, 1);
+            this.unchargedCopy = false;
+        }
+        this.world = world;
+        this.sharedWorld = false;
+        this.fallKill += statsDelta[0];
+        this.stompKill += statsDelta[1];
+        this.fireKill += statsDelta[2];
+        this.shellKill += statsDelta[3];
+        this.mushrooms += statsDelta[4];
+        this.flowers += statsDelta[5];
+        this.breakBlock += statsDelta[6];
+    }
+
     /**
      * Advance the forward model using the action array
      *
      * @param actions a list of all the button states
      */
     public void advance(boolean[] actions) {
+        this.advance(MarioActions.toMask(actions));
+    }
+
+    /**
+     * Advance the forward model using an action mask, it doesn't allocate a button array
+     *
+     * @param actions a mask with the bit of every pressed button set (see MarioActions.getMask)
+     */
+    public void advance(int actions) {
+        if (this.timer != null) {
+            this.timer.chargeAdvance();
+        }
+        this.copySharedWorld();
         this.world.update(actions);
-        for (MarioEvent e : this.world.lastFrameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
+        MarioEventBuffer events = this.world.getLastFrameEventBuffer();
+        for (int i = 0; i < events.size(); i++) {
+            int type = events.getEventType(i);
+            if (type == EventType.FIRE_KILL.getValue()) {
                 this.fireKill += 1;
             }
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
+            if (type == EventType.STOMP_KILL.getValue()) {
                 this.stompKill += 1;
             }
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
+            if (type == EventType.FALL_KILL.getValue()) {
                 this.fallKill += 1;
             }
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
+            if (type == EventType.SHELL_KILL.getValue()) {
                 this.shellKill += 1;
             }
-            if (e.getEventType() == EventType.COLLECT.getValue()) {
-                if (e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
+            if (type == EventType.COLLECT.getValue()) {
+                if (events.getEventParam(i) == SpriteType.FIRE_FLOWER.getValue()) {
                     this.flowers += 1;
                 }
-                if (e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
+                if (events.getEventParam(i) == SpriteType.MUSHROOM.getValue()) {
                     this.mushrooms += 1;
                 }
             }
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == OBS_BRICK
-                    && e.getMarioState() > 0) {
+            if (type == EventType.BUMP.getValue() && events.getEventParam(i) == OBS_BRICK
+                    && events.getMarioState(i) > 0) {
                 this.breakBlock += 1;
             }
         }
     }
 
+    /**
+     * Get all the events that happened during the last advance call
+     *
+     * @return an arrayList of the events that happened in the last frame
+     */
+    public ArrayList<MarioEvent> getLastFrameEvents() {
+        if (this.sharedWorld) {
+            // the events of the game world belong to the game, a fresh copy of the world has none
+            return new ArrayList<>();
+        }
+        return this.world.getLastFrameEventBuffer().getEvents();
+    }
+
+    /**
+     * Get all the events that happened during the last advance call without creating MarioEvent objects
+     *
+     * @return a buffer with the events of the last frame, it is reused by the next advance call
+     */
+    public MarioEventBuffer getLastFrameEventBuffer() {
+        if (this.sharedWorld) {
+            return new MarioEventBuffer();
+        }
+        return this.world.getLastFrameEventBuffer();
+    }
+
     /**
      * Get the current state of the running game
      *
@@ -287,6 +477,27 @@ public class MarioForwardModel {
         return this.world.gameStatus;
     }
 
+    /**
+     * Get a 64 bit hash of the current simulation state, two forward models with the same hash are
+     * in the same state and will behave the same way for the same actions
+     *
+     * @return the hash of the current state
+     */
+    public long getStateHash() {
+        return this.world.getStateHash();
+    }
+
+    /**
+     * Get a 64 bit hash of the current simulation state that leaves out the tick and the remaining time,
+     * so a search finds a state it already expanded even when it reached it at another tick. Use
+     * getStateHash when the remaining time matters.
+     *
+     * @return the hash of the current state at any tick
+     */
+    public long getSearchHash() {
+        return this.world.getSearchHash();
+    }
+
     /**
      * The percentage of distance traversed between mario and the goal
      *
@@ -392,6 +603,16 @@ public class MarioForwardModel {
         return enemyPos;
     }
 
+    /**
+     * Fill a buffer with the type, x position and y position of every enemy without allocating
+     *
+     * @param buffer buffer that gets 3 floats for each enemy, enemies that don't fit are skipped
+     * @return the number of enemies, even the ones that didn't fit in the buffer
+     */
+    public int getEnemiesFloatPos(float[] buffer) {
+        return this.world.getEnemiesFloatPos(buffer);
+    }
+
     /**
      * get the number of enemies killed in the game
      *
@@ -640,4 +861,195 @@ public class MarioForwardModel {
     public int[][] getMarioSceneObservation(int detail) {
         return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail);
     }
+
+    /**
+     * Fill a flat grid with the current screen scene, see obsGridSize for the layout
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer buffer that gets obsGridSize values
+     * @param offset index of the first value in the buffer
+     */
+    public void getScreenSceneObservation(int detail, int[] buffer, int offset) {
+        this.world.getSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail,
+                buffer, offset);
+    }
+
+    /**
+     * Fill a flat grid with the current screen enemies, see obsGridSize for the layout
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer buffer that gets obsGridSize values
+     * @param offset index of the first value in the buffer
+     */
+    public void getScreenEnemiesObservation(int detail, int[] buffer, int offset) {
+        this.world.getEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail,
+                buffer, offset);
+    }
+
+    /**
+     * Fill a flat grid with the current screen scene and enemies, see obsGridSize for the layout
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets obsGridSize values
+     * @param offset      index of the first value in the buffer
+     */
+    public void getScreenCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer, int offset) {
+        this.world.getMergedObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2,
+                sceneDetail, enemyDetail, buffer, offset);
+    }
+
+    /**
+     * Fill a flat grid with the scene around mario, see obsGridSize for the layout
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer buffer that gets obsGridSize values
+     * @param offset index of the first value in the buffer
+     */
+    public void getMarioSceneObservation(int detail, int[] buffer, int offset) {
+        this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail, buffer, offset);
+    }
+
+    /**
+     * Fill a flat grid with the enemies around mario, see obsGridSize for the layout
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer buffer that gets obsGridSize values
+     * @param offset index of the first value in the buffer
+     */
+    public void getMarioEnemiesObservation(int detail, int[] buffer, int offset) {
+        this.world.getEnemiesObservation(this.world.mario.x, this.world.mario.y, detail, buffer, offset);
+    }
+
+    /**
+     * Fill a flat grid with the scene and enemies around mario, see obsGridSize for the layout
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets obsGridSize values
+     * @param offset      index of the first value in the buffer
+     */
+    public void getMarioCompleteObservation(int sceneDetail, int enemyDetail, int[] buffer, int offset) {
+        this.world.getMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail,
+                buffer, offset);
+    }
+
+    /**
+     * Fill the scene, enemies and complete grids of the current screen in one pass. The three grids are
+     * stored one after the other starting at offset, each one takes obsGridSize values.
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets 3 * obsGridSize values
+     * @param offset      index of the first value in the buffer
+     */
+    public void getScreenObservations(int sceneDetail, int enemyDetail, int[] buffer, int offset) {
+        this.world.getObservations(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, sceneDetail,
+                enemyDetail, buffer, offset, buffer, offset + this.obsGridSize, buffer, offset + 2 * this.obsGridSize);
+    }
+
+    /**
+     * Fill the scene, enemies and complete grids around mario in one pass. The three grids are stored one
+     * after the other starting at offset, each one takes obsGridSize values.
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets 3 * obsGridSize values
+     * @param offset      index of the first value in the buffer
+     */
+    public void getMarioObservations(int sceneDetail, int enemyDetail, int[] buffer, int offset) {
+        this.world.getObservations(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail,
+                buffer, offset, buffer, offset + this.obsGridSize, buffer, offset + 2 * this.obsGridSize);
+    }
+
+    /**
+     * Put the scene, enemies and complete grids of the current screen in a buffer, like
+     * getScreenObservations(int, int, int[], int) starting at the current position of the buffer
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets 3 * obsGridSize values, its position is moved after them
+     */
+    public void getScreenObservations(int sceneDetail, int enemyDetail, IntBuffer buffer) {
+        if (buffer.remaining() < 3 * this.obsGridSize) {
+            throw new BufferOverflowException();
+        }
+        if (buffer.hasArray()) {
+            this.getScreenObservations(sceneDetail, enemyDetail, buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + 3 * this.obsGridSize);
+            return;
+        }
+        this.getScreenObservations(sceneDetail, enemyDetail, this.getObservationBuffer(), 0);
+        buffer.put(this.observationBuffer);
+    }
+
+    /**
+     * Put the scene, enemies and complete grids around mario in a buffer, like
+     * getMarioObservations(int, int, int[], int) starting at the current position of the buffer
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer      buffer that gets 3 * obsGridSize values, its position is moved after them
+     */
+    public void getMarioObservations(int sceneDetail, int enemyDetail, IntBuffer buffer) {
+        if (buffer.remaining() < 3 * this.obsGridSize) {
+            throw new BufferOverflowException();
+        }
+        if (buffer.hasArray()) {
+            this.getMarioObservations(sceneDetail, enemyDetail, buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + 3 * this.obsGridSize);
+            return;
+        }
+        this.getMarioObservations(sceneDetail, enemyDetail, this.getObservationBuffer(), 0);
+        buffer.put(this.observationBuffer);
+    }
+
+    private int[] getObservationBuffer() {
+        if (this.observationBuffer == null) {
+            this.observationBuffer = new int[3 * this.obsGridSize];
+        }
+        return this.observationBuffer;
+    }
+
+    /**
+     * The scene on the screen as a window that is moved with the screen instead of being built again, only the
+     * tiles that became visible or changed since the last call are computed. The same object is returned as long
+     * as the game world is the same, so it can be kept between agent steps.
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @return window with the same values as getScreenSceneObservation(detail)
+     */
+    public MarioObservationWindow getScreenSceneWindow(int detail) {
+        return this.world.getScreenSceneWindow(detail);
+    }
+
+    /**
+     * The scene around mario as a window that is moved with mario instead of being built again, only the tiles
+     * that became visible or changed since the last call are computed. The same object is returned as long as
+     * the game world is the same, so it can be kept between agent steps.
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @return window with the same values as getMarioSceneObservation(detail)
+     */
+    public MarioObservationWindow getMarioSceneWindow(int detail) {
+        return this.world.getMarioSceneWindow(detail);
+    }
 }
@@ -0,0 +1,175 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import engine.helper.MarioActions;
+
+/**
+ * An optional cache in front of MarioForwardModel.advance. It remembers the state reached by
+ * applying an action a number of times from a certain state (identified by its state hash) and
+ * replays it from memory the next time the same transition is requested. The least recently used
+ * transitions are evicted when the cache is full.
+ * <p>
+ * A hit costs one world clone and a miss costs one extra world clone on top of the simulation, so
+ * the cache pays off for transitions with several repetitions or for search spaces that are visited
+ * again and again (successive ticks of the same agent or repeated runs on the same level). A cache
+ * should only be used with worlds that share the same kill events.
+ * <p>
+ * The timer of the model is charged the same on a hit and a miss: the advances of all the repetitions
+ * and one clone. A simulation budget then doesn't depend on what is already in the cache.
+ */
+public class MarioForwardModelCache {
+    private static class Key {
+        private final long stateHash;
+        private final int actions;
+        private final int repetitions;
+
+        private Key(long stateHash, int actions, int repetitions) {
+            this.stateHash = stateHash;
+            this.actions = actions;
+            this.repetitions = repetitions;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.stateHash == other.stateHash && this.actions == other.actions &&
+                    this.repetitions == other.repetitions;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (this.stateHash ^ (this.stateHash >>> 32)) * 31 + this.actions * 17 + this.repetitions;
+        }
+    }
+
+    private static class Entry {
+        private MarioWorld world;
+        private int[] statsDelta;
+        private MarioEventBuffer lastFrameEvents;
+    }
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create an empty cache
+     *
+     * @param capacity the maximum number of transitions kept in memory
+     */
+    public MarioForwardModelCache(final int capacity) {
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (this.size() > capacity) {
+                    evictions += 1;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Advance the forward model using the same action array for a number of ticks, using the cached
+     * result if the same transition was simulated before
+     *
+     * @param model       the forward model to advance
+     * @param actions     a list of all the button states
+     * @param repetitions number of ticks to apply the action
+     */
+    public void advance(MarioForwardModel model, boolean[] actions, int repetitions) {
+        Key key = new Key(model.getStateHash(), MarioActions.toMask(actions), repetitions);
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+            if (entry != null) {
+                this.hits += 1;
+            } else {
+                this.misses += 1;
+            }
+        }
+        if (entry != null) {
+            model.charge(repetitions, 1);
+            MarioWorld world = entry.world.clone();
+            world.getLastFrameEventBuffer().addAll(entry.lastFrameEvents);
+            model.restore(world, entry.statsDelta);
+            return;
+        }
+
+        int[] before = model.getStats();
+        for (int i = 0; i < repetitions; i++) {
+            model.advance(actions);
+        }
+        int[] after = model.getStats();
+        entry = new Entry();
+        model.charge(0, 1);
+        entry.world = model.getWorld().clone();
+        entry.statsDelta = new int[after.length];
+        for (int i = 0; i < after.length; i++) {
+            entry.statsDelta[i] = after[i] - before[i];
+        }
+        entry.lastFrameEvents = new MarioEventBuffer();
+        entry.lastFrameEvents.addAll(model.getWorld().getLastFrameEventBuffer());
+        synchronized (this) {
+            this.entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Advance the forward model one tick using the action array
+     *
+     * @param model   the forward model to advance
+     * @param actions a list of all the button states
+     */
+    public void advance(MarioForwardModel model, boolean[] actions) {
+        this.advance(model, actions, 1);
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Get the percentage of advance calls that were answered from the cache
+     *
+     * @return value between 0 to 1
+     */
+    public synchronized float getHitRate() {
+        if (this.hits + this.misses == 0) {
+            return 0;
+        }
+        return (float) this.hits / (this.hits + this.misses);
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Remove all the cached transitions and reset the counters
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+}
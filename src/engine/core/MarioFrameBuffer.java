@@ -0,0 +1,78 @@
+package engine.core;
+
+/**
+ * Passes recorded frames from the game thread to the render thread through four snapshots, so neither
+ * thread waits for the other. The game thread records into the back snapshot and publishes it, the render
+ * thread takes the latest published snapshot and keeps the one it took before to draw frames in between.
+ * A snapshot is only recorded into again after the render thread let go of it, so the render thread
+ * always draws complete frames that don't change while they are drawn. Snapshots the render thread
+ * didn't take in time are skipped.
+ */
+public class MarioFrameBuffer {
+    private final MarioRenderSnapshot[] snapshots = new MarioRenderSnapshot[4];
+    // only the game thread reads back without the lock, only publish changes it
+    private int back = 0;
+    private int ready = 1;
+    private int front = 2;
+    private int previous = 3;
+    private boolean fresh;
+
+    public MarioFrameBuffer() {
+        for (int i = 0; i < this.snapshots.length; i++) {
+            this.snapshots[i] = new MarioRenderSnapshot();
+        }
+    }
+
+    /**
+     * Get the snapshot the game thread records into
+     *
+     * @return the back snapshot, it must only be used by the game thread
+     */
+    public MarioRenderSnapshot getBack() {
+        return this.snapshots[this.back];
+    }
+
+    /**
+     * Make the back snapshot the latest frame, the game thread then records into an older snapshot
+     */
+    public synchronized void publish() {
+        int published = this.back;
+        this.back = this.ready;
+        this.ready = published;
+        this.fresh = true;
+        this.notifyAll();
+    }
+
+    /**
+     * Wait for a frame that is newer than the last taken frame
+     *
+     * @param timeoutMillis the maximum milliseconds to wait
+     * @return the latest frame, or null if no new frame was published before the timeout
+     * @throws InterruptedException if the render thread is interrupted while waiting
+     */
+    public synchronized MarioRenderSnapshot takeFrame(long timeoutMillis) throws InterruptedException {
+        if (!this.fresh) {
+            this.wait(timeoutMillis);
+        }
+        if (!this.fresh) {
+            return null;
+        }
+        int latest = this.ready;
+        this.ready = this.previous;
+        this.previous = this.front;
+        this.front = latest;
+        this.fresh = false;
+        return this.snapshots[this.front];
+    }
+
+    /**
+     * Get the frame taken before the latest taken frame, it stays unchanged until the next takeFrame
+     *
+     * @return the older frame, or null if only one frame was taken so far
+     */
+    public synchronized MarioRenderSnapshot getPrevious() {
+        MarioRenderSnapshot snapshot = this.snapshots[this.previous];
+        // the previous snapshot starts out never recorded
+        return snapshot.getTime() != 0 ? snapshot : null;
+    }
+}
@@ -2,6 +2,7 @@ package engine.core;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.VolatileImage;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -12,6 +13,7 @@ import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.CompletionHandler;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
@@ -22,6 +24,7 @@ import agents.human.Agent;
 import engine.helper.EventType;
 import engine.helper.GameStatus;
 import engine.helper.MarioActions;
+import engine.helper.MetricType;
 
 public class MarioGame {
     /**
@@ -63,6 +66,38 @@ public class MarioGame {
      */
     private MarioEvent[] killEvents;
 
+    /**
+     * forward model budget for each agent step, agents use wall clock time when it is <= 0
+     */
+    private long simulationBudget = 0;
+    private long advanceCost = 1;
+    private long cloneCost = 1;
+    /**
+     * charge the agents for the CPU time of their thread instead of wall clock time
+     */
+    private boolean cpuTimeBudget = false;
+
+    /**
+     * draw the frames on the screen on a separate render thread when the game is shown
+     */
+    private boolean renderThread = false;
+
+    /**
+     * nanoseconds each agent step is allowed to take and whether the agent is stopped when it takes longer
+     */
+    private long agentDeadline = (MarioGame.maxTime + MarioGame.graceTime) * 1000000L;
+    private boolean enforceAgentDeadline = false;
+
+    /**
+     * keep every game event in the result, the statistics of the result are collected either way
+     */
+    private boolean keepGameEvents = true;
+    /**
+     * keep the agent actions of every tick in the result and optionally write them to an output
+     */
+    private boolean keepAgentEvents = true;
+    private DataOutput agentEventsOutput = null;
+
     // visualization
     private JFrame window = null;
     private MarioRender render = null;
@@ -128,11 +163,108 @@ public class MarioGame {
         this.killEvents = killEvents;
     }
 
-    private int getDelay(int fps) {
+    private long getFrameNanos(int fps) {
         if (fps <= 0) {
             return 0;
         }
-        return 1000 / fps;
+        return 1000000000L / fps;
+    }
+
+    /**
+     * Charge the agents for the forward model calls they make instead of the time they take, so the
+     * results don't depend on the speed or the load of the machine
+     *
+     * @param budget      the budget for each agent step, setting it to anything <=0 will use wall clock time
+     * @param advanceCost the amount of budget spent by every MarioForwardModel.advance call
+     * @param cloneCost   the amount of budget spent by every MarioForwardModel.clone call, the copy of the
+     *                    game world in the model of every step is charged as one clone on its first advance
+     */
+    public void setSimulationBudget(long budget, long advanceCost, long cloneCost) {
+        this.simulationBudget = budget;
+        this.advanceCost = advanceCost;
+        this.cloneCost = cloneCost;
+    }
+
+    /**
+     * Charge the agents for the CPU time of the thread that runs them instead of the wall clock time, so
+     * other threads on a busy machine don't use up their time. It is not used with a simulation budget.
+     *
+     * @param cpuTimeBudget true to use the CPU time of the agent thread
+     */
+    public void setCpuTimeBudget(boolean cpuTimeBudget) {
+        this.cpuTimeBudget = cpuTimeBudget;
+    }
+
+    /**
+     * Choose where a shown game is drawn on the screen. With a render thread the game thread only records
+     * every frame into a MarioRenderSnapshot and hands it over through a MarioFrameBuffer, drawing the
+     * snapshots on the screen happens on the render thread so it never slows down the game. A game slower
+     * than MarioRender.DISPLAY_FPS is drawn with frames in between its snapshots. The fps of the game then
+     * only sets the pace of the game, a fps of 0 runs the game as fast as possible while the screen shows
+     * the latest frame.
+     *
+     * @param renderThread true to draw on a render thread, false to draw on the game thread (default)
+     */
+    public void setRenderThread(boolean renderThread) {
+        this.renderThread = renderThread;
+    }
+
+    /**
+     * Run the agent on its own thread and stop waiting for it when it doesn't return its actions before
+     * the deadline, the agent is interrupted and its last actions are used for that step instead
+     *
+     * @param deadline the nanoseconds each agent step is allowed to take, setting it to anything <=0 will call
+     *                 the agent on the game thread and wait for it like before
+     */
+    public void setAgentDeadline(long deadline) {
+        this.enforceAgentDeadline = deadline > 0;
+        this.agentDeadline = deadline > 0 ? deadline : (MarioGame.maxTime + MarioGame.graceTime) * 1000000L;
+    }
+
+    /**
+     * Choose if the result keeps the list of all the game events. The result statistics are counted while
+     * the game is played, so the list is only needed to look at the single events and it grows with the
+     * length of the game.
+     *
+     * @param keepGameEvents true to keep the events in MarioResult.getGameEvents (default), false to return
+     *                       an empty list
+     */
+    public void setKeepGameEvents(boolean keepGameEvents) {
+        this.keepGameEvents = keepGameEvents;
+    }
+
+    /**
+     * Choose what happens to the agent actions and mario states of every tick, see MarioTrajectory for the
+     * format that is written
+     *
+     * @param keepAgentEvents true to keep them in MarioResult.getAgentEvents (default), false to return an
+     *                        empty list
+     * @param output          where every tick is written while the game is played, null to not write them
+     */
+    public void setAgentEventsOutput(boolean keepAgentEvents, DataOutput output) {
+        this.keepAgentEvents = keepAgentEvents;
+        this.agentEventsOutput = output;
+    }
+
+    private MarioTimer createAgentTimer(MarioTimer previousTimer) {
+        if (this.simulationBudget <= 0) {
+            return new MarioTimer(MarioGame.maxTime, this.cpuTimeBudget);
+        }
+        // the same timer is reused so forward models kept from earlier steps charge the current step
+        if (previousTimer != null && previousTimer.isSimulationBudget()) {
+            previousTimer.restart();
+            return previousTimer;
+        }
+        return new MarioTimer(this.simulationBudget, this.advanceCost, this.cloneCost);
+    }
+
+    private MarioForwardModel createAgentModel(MarioTimer agentTimer) {
+        if (this.enforceAgentDeadline) {
+            // an agent that missed its deadline can still be reading the model while the world is updated
+            return new MarioForwardModel(this.world.clone(), agentTimer, false);
+        }
+        // the game waits for the agent, so the world is only copied if the agent advances the model
+        return new MarioForwardModel(this.world, agentTimer, true);
     }
 
     private void setAgent(MarioAgent agent) {
@@ -324,6 +456,8 @@ public class MarioGame {
     }
 
     private MarioResult gameLoop(String level, int timer, int marioState, boolean visual, int fps) {
+        MarioEpisodeEndEvent episodeEvent = new MarioEpisodeEndEvent();
+        episodeEvent.begin();
         this.world = new MarioWorld(this.killEvents);
         this.world.visuals = visual;
         this.world.initializeLevel(level, 1000 * timer);
@@ -332,60 +466,123 @@ public class MarioGame {
         }
         this.world.mario.isLarge = marioState > 0;
         this.world.mario.isFire = marioState > 1;
-        this.world.update(new boolean[MarioActions.numberOfActions()]);
-        long currentTime = System.currentTimeMillis();
+        this.world.update(0);
+        long currentTime = System.nanoTime();
+
+        MarioEpisodeStartEvent startEvent = new MarioEpisodeStartEvent();
+        if (startEvent.isEnabled()) {
+            startEvent.levelId = level.hashCode();
+            startEvent.levelWidth = this.world.level.tileWidth;
+            startEvent.agentName = this.agent.getAgentName();
+            startEvent.marioState = marioState;
+            startEvent.commit();
+        }
 
         // initialize graphics
         VolatileImage renderTarget = null;
         Graphics backBuffer = null;
         Graphics currentBuffer = null;
-        if (visual) {
+        MarioFrameBuffer frames = null;
+        if (visual && this.renderThread) {
+            frames = new MarioFrameBuffer();
+            this.render.addFocusListener(this.render);
+        } else if (visual) {
             renderTarget = this.render.createVolatileImage(MarioGame.width, MarioGame.height);
             backBuffer = this.render.getGraphics();
             currentBuffer = renderTarget.getGraphics();
             this.render.addFocusListener(this.render);
         }
 
-        MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
-        this.agent.initialize(new MarioForwardModel(this.world.clone()), agentTimer);
-
+        MarioAgentExecutor executor = new MarioAgentExecutor(this.agent, this.agentDeadline,
+                this.enforceAgentDeadline);
+        MarioTimer agentTimer = this.createAgentTimer(null);
         ArrayList<MarioEvent> gameEvents = new ArrayList<>();
-        ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>();
-        while (this.world.gameStatus == GameStatus.RUNNING) {
-            if (!this.pause) {
-                // get actions
-                agentTimer = new MarioTimer(MarioGame.maxTime);
-                boolean[] actions = this.agent.getActions(new MarioForwardModel(this.world.clone()), agentTimer);
-                if (MarioGame.verbose) {
-                    if (agentTimer.getRemainingTime() < 0
-                            && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
-                        System.out.println("The Agent is slowing down the game by: "
-                                + Math.abs(agentTimer.getRemainingTime()) + " msec.");
+        MarioTrajectory trajectory = new MarioTrajectory(this.agentEventsOutput, this.keepAgentEvents);
+        MarioResultStatistics statistics = new MarioResultStatistics();
+        int decisions = 0;
+        // an agent exception must not leave the agent thread or the render thread running
+        try {
+            if (frames != null) {
+                this.render.startRenderThread(frames);
+            }
+            executor.initialize(this.createAgentModel(agentTimer), agentTimer);
+
+            while (this.world.gameStatus == GameStatus.RUNNING) {
+                if (!this.pause) {
+                    // get actions
+                    agentTimer = this.createAgentTimer(agentTimer);
+                    // the model is made before the event begins, cloning the world isn't agent latency
+                    MarioForwardModel agentModel = this.createAgentModel(agentTimer);
+                    MarioDecisionEvent decisionEvent = new MarioDecisionEvent();
+                    decisionEvent.begin();
+                    int actions = executor.getActionMask(agentModel, agentTimer);
+                    decisionEvent.end();
+                    decisions += 1;
+                    if (decisionEvent.shouldCommit()) {
+                        decisionEvent.tick = this.world.currentTick;
+                        decisionEvent.advances = agentTimer.getAdvanceCount();
+                        decisionEvent.clones = agentTimer.getCloneCount();
+                        decisionEvent.actions = actions;
+                        decisionEvent.commit();
+                    }
+                    if (MarioGame.verbose) {
+                        if (agentTimer.getRemainingTime() < 0
+                                && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
+                            System.out.println("The Agent is slowing down the game by: "
+                                    + Math.abs(agentTimer.getRemainingTime()) + " msec.");
+                        }
                     }
+                    // update world
+                    this.world.update(actions);
+                    // the events of the last frame are counted again while the world is paused, like the event list
+                    statistics.addAll(this.world.getLastFrameEventBuffer());
+                    if (this.keepGameEvents) {
+                        gameEvents.addAll(this.world.getLastFrameEventBuffer().getEvents());
+                    }
+                    trajectory.add(actions, this.world.mario.x, this.world.mario.y,
+                            (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
+                            this.world.mario.onGround, this.world.currentTick);
                 }
-                // update world
-                this.world.update(actions);
-                gameEvents.addAll(this.world.lastFrameEvents);
-                agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x, this.world.mario.y,
-                        (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
-                        this.world.mario.onGround, this.world.currentTick));
-            }
 
-            // render world
-            if (visual) {
-                this.render.renderWorld(this.world, renderTarget, backBuffer, currentBuffer);
-            }
-            // check if delay needed
-            if (this.getDelay(fps) > 0) {
-                try {
-                    currentTime += this.getDelay(fps);
-                    Thread.sleep(Math.max(0, currentTime - System.currentTimeMillis()));
-                } catch (InterruptedException e) {
-                    break;
+                // render world
+                if (frames != null) {
+                    long metricsStart = MarioMetrics.start();
+                    this.render.recordFrame(this.world, frames.getBack());
+                    frames.publish();
+                    MarioMetrics.stop(MetricType.RENDER, metricsStart);
+                } else if (visual) {
+                    this.render.renderWorld(this.world, renderTarget, backBuffer, currentBuffer);
+                }
+                // check if delay needed
+                if (this.getFrameNanos(fps) > 0) {
+                    try {
+                        currentTime += this.getFrameNanos(fps);
+                        TimeUnit.NANOSECONDS.sleep(currentTime - System.nanoTime());
+                    } catch (InterruptedException e) {
+                        break;
+                    }
                 }
             }
+        } finally {
+            executor.shutdown();
+            if (frames != null) {
+                this.render.stopRenderThread();
+            }
+        }
+        MarioResult result = new MarioResult(this.world, gameEvents, trajectory, statistics);
+        result.setAgentLatency(executor);
+        episodeEvent.end();
+        if (episodeEvent.shouldCommit()) {
+            episodeEvent.levelId = level.hashCode();
+            episodeEvent.agentName = this.agent.getAgentName();
+            episodeEvent.outcome = result.getGameStatus().toString();
+            episodeEvent.completion = result.getCompletionPercentage();
+            episodeEvent.ticks = this.world.currentTick;
+            episodeEvent.decisions = decisions;
+            episodeEvent.latencyViolations = executor.getLatencyViolations();
+            episodeEvent.commit();
         }
-        return new MarioResult(this.world, gameEvents, agentEvents);
+        return result;
     }
 
     public void initGame() throws InterruptedException, ExecutionException, TimeoutException {
@@ -402,11 +599,13 @@ public class MarioGame {
     }
 
     public void resetGame(String level, int timer) throws InterruptedException, ExecutionException {
+        MarioBridgeEvent event = new MarioBridgeEvent();
+        event.begin();
         this.world = new MarioWorld(this.killEvents);
         this.world.visuals = true;
         this.world.initializeLevel(level, 1000 * timer);
         this.world.initializeVisuals(this.render.getGraphicsConfiguration());
-        this.world.update(new boolean[MarioActions.numberOfActions()]);
+        this.world.update(0);
         this.lastMarioTile = 0.0f;
 
         // initialize graphics
@@ -414,6 +613,16 @@ public class MarioGame {
         this.backBuffer = this.render.getGraphics();
         this.currentBuffer = renderTarget.getGraphics();
         this.render.addFocusListener(this.render);
+        this.commitBridgeEvent(event, "reset");
+    }
+
+    private void commitBridgeEvent(MarioBridgeEvent event, String operation) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.tick = this.world.currentTick;
+            event.commit();
+        }
     }
 
     public boolean computeDone() {
@@ -422,14 +631,16 @@ public class MarioGame {
 
     public void stepGame(boolean left, boolean right, boolean down, boolean speed, boolean jump)
             throws InterruptedException, ExecutionException {
-        boolean[] actions = new boolean[5];
-        actions[0] = left;
-        actions[1] = right;
-        actions[2] = down;
-        actions[3] = speed;
-        actions[4] = jump;
+        MarioBridgeEvent event = new MarioBridgeEvent();
+        event.begin();
+        int actions = 0;
+        actions |= left ? MarioActions.LEFT.getMask() : 0;
+        actions |= right ? MarioActions.RIGHT.getMask() : 0;
+        actions |= down ? MarioActions.DOWN.getMask() : 0;
+        actions |= speed ? MarioActions.SPEED.getMask() : 0;
+        actions |= jump ? MarioActions.JUMP.getMask() : 0;
         this.world.update(actions);
-
+        this.commitBridgeEvent(event, "step");
     }
 
     public float getCompletionPercentage() {
@@ -443,8 +654,9 @@ public class MarioGame {
     public float computeReward() {
         float reward = 0;
         int marioTile = this.world.mario.getMapX();
-        for (MarioEvent event : this.world.lastFrameEvents) {
-            EventType type = EventType.values()[event.getEventType() - 1];
+        MarioEventBuffer events = this.world.getLastFrameEventBuffer();
+        for (int i = 0; i < events.size(); i++) {
+            EventType type = EventType.values()[events.getEventType(i) - 1];
             switch (type) {
                 case COLLECT:
                     reward += 1.0f;
@@ -483,17 +695,29 @@ public class MarioGame {
     }
 
     public void computeObservationRGB() throws InterruptedException, ExecutionException {
+        MarioBridgeEvent event = new MarioBridgeEvent();
+        event.begin();
         this.render.renderWorld(this.world, this.renderTarget, this.backBuffer, this.currentBuffer);
-        BufferedImage image = this.renderTarget.getSnapshot();
-        byteBuffer.clear();
+        writeObservationRGB(this.renderTarget.getSnapshot(), this.byteBuffer);
+        this.worker.write(byteBuffer).get();
+        this.commitBridgeEvent(event, "observe");
+    }
+
+    /**
+     * Write the pixels of a rendered frame as the red, green and blue int of every pixel row by row
+     *
+     * @param image  the rendered frame, at least MarioGame.width by MarioGame.height pixels
+     * @param buffer the buffer that is filled, it is cleared first and flipped at the end
+     */
+    public static void writeObservationRGB(BufferedImage image, ByteBuffer buffer) {
+        buffer.clear();
         for (int y = 0; y < MarioGame.height; y++) {
             for (int x = 0; x < MarioGame.width; x++) {
                 int pixel = image.getRGB(x, y);
                 Color color = new Color(pixel);
-                byteBuffer.putInt(color.getRed()).putInt(color.getGreen()).putInt(color.getBlue());
+                buffer.putInt(color.getRed()).putInt(color.getGreen()).putInt(color.getBlue());
             }
         }
-        byteBuffer.flip();
-        this.worker.write(byteBuffer).get();
+        buffer.flip();
     }
 }
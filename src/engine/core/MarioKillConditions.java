@@ -0,0 +1,132 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * The kill events of a punishing forward model compiled to a bitmask of the event types and the
+ * parameters of the kill events for each type. The world checks every event against it when the event
+ * happens instead of searching all the events of the tick for every kill event. A kill event matches an
+ * event with the same rule as MarioEvent.equals, a kill event parameter of 0 matches any parameter.
+ * The conditions never change so every copy of a world uses the same object.
+ */
+public class MarioKillConditions {
+    private final int size;
+    private final int typeMask;
+    // indices and parameters of the kill events of each event type value
+    private final int[][] conditions;
+    private final int[][] params;
+
+    /**
+     * Compile a list of kill events
+     *
+     * @param killEvents the events that make mario lose the game
+     */
+    public MarioKillConditions(MarioEvent[] killEvents) {
+        int maxType = 0;
+        for (MarioEvent k : killEvents) {
+            maxType = Math.max(maxType, k.getEventType());
+        }
+        int[] counts = new int[maxType + 1];
+        for (MarioEvent k : killEvents) {
+            if (k.getEventType() >= 0) {
+                counts[k.getEventType()] += 1;
+            }
+        }
+        this.conditions = new int[maxType + 1][];
+        this.params = new int[maxType + 1][];
+        int mask = 0;
+        for (int type = 0; type <= maxType; type++) {
+            this.conditions[type] = new int[counts[type]];
+            this.params[type] = new int[counts[type]];
+            if (counts[type] > 0 && type < Integer.SIZE) {
+                mask |= 1 << type;
+            }
+            counts[type] = 0;
+        }
+        for (int i = 0; i < killEvents.length; i++) {
+            int type = killEvents[i].getEventType();
+            if (type >= 0) {
+                this.conditions[type][counts[type]] = i;
+                this.params[type][counts[type]] = killEvents[i].getEventParam();
+                counts[type] += 1;
+            }
+        }
+        this.size = killEvents.length;
+        this.typeMask = mask;
+    }
+
+    /**
+     * Get the number of kill events
+     *
+     * @return number of conditions
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Check if any kill event has a certain type
+     *
+     * @param eventType the value of the event type
+     * @return true if an event of that type can match a kill event
+     */
+    public boolean hasType(int eventType) {
+        if (eventType >= 0 && eventType < Integer.SIZE) {
+            return ((this.typeMask >> eventType) & 1) == 1;
+        }
+        return eventType >= 0 && eventType < this.conditions.length && this.conditions[eventType].length > 0;
+    }
+
+    /**
+     * Create an empty set of matched kill events
+     *
+     * @return one bit for every kill event
+     */
+    public long[] createMatches() {
+        return new long[(this.size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Mark the kill events that match an event
+     *
+     * @param eventType  the value of the event type
+     * @param eventParam the parameter of the event
+     * @param matches    the matched kill events from createMatches
+     * @return true if at least one kill event matched
+     */
+    public boolean match(int eventType, int eventParam, long[] matches) {
+        if (!this.hasType(eventType)) {
+            return false;
+        }
+        boolean matched = false;
+        int[] conditions = this.conditions[eventType];
+        int[] params = this.params[eventType];
+        for (int i = 0; i < conditions.length; i++) {
+            if (params[i] == 0 || params[i] == eventParam) {
+                matches[conditions[i] / Long.SIZE] |= 1L << (conditions[i] % Long.SIZE);
+                matched = true;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Check if a kill event was marked
+     *
+     * @param index   the index of the kill event
+     * @param matches the matched kill events
+     * @return true if the kill event matched an event
+     */
+    public boolean isMatched(int index, long[] matches) {
+        return ((matches[index / Long.SIZE] >> (index % Long.SIZE)) & 1) == 1;
+    }
+
+    /**
+     * Remove all the marks
+     *
+     * @param matches the matched kill events
+     */
+    public void clear(long[] matches) {
+        Arrays.fill(matches, 0);
+    }
+}
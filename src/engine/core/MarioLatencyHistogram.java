@@ -0,0 +1,101 @@
+package engine.core;
+
+/**
+ * A latency histogram with a fixed relative precision like an HDR histogram. Values below 32 get their own
+ * bucket, larger values are split into 32 buckets for every power of two, so a recorded value is known
+ * within about 3% with 1888 buckets for any long value. Recording never allocates.
+ */
+public class MarioLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    private static int getIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    private static long getHighestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Record one value
+     *
+     * @param value the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        this.counts[getIndex(value)] += 1;
+        this.count += 1;
+        this.total += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Add all the values of another histogram to this one
+     *
+     * @param other the histogram that is added
+     */
+    public void add(MarioLatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    public double getMean() {
+        return this.count == 0 ? 0 : (double) this.total / this.count;
+    }
+
+    /**
+     * Get the value below which a percentage of the recorded values are
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the highest value of the bucket of that percentile, never more than the largest value
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(getHighestValue(i), this.max);
+            }
+        }
+        return this.max;
+    }
+}
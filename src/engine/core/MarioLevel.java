@@ -1,7 +1,6 @@
 package engine.core;
 
 import java.awt.Graphics;
-import java.util.ArrayList;
 
 import engine.graphics.MarioImage;
 import engine.graphics.MarioTilemap;
@@ -21,6 +20,15 @@ public class MarioLevel {
     private int[][] levelTiles;
     private SpriteType[][] spriteTemplates;
     private int[][] lastSpawnTime;
+    private long tileHash;
+    private long spawnHash;
+    // generalized tiles for each observation detail level, tile (x, y) is at x * tileHeight + y
+    private int[][] generalizedTiles = new int[MarioForwardModel.OBS_DETAIL_LEVELS][];
+    private boolean generalizedTilesShared;
+    // the last tiles changed by setBlock, tile (x, y) is stored as x * tileHeight + y
+    private static final int TILE_CHANGE_LOG = 32;
+    private int[] tileChanges = new int[TILE_CHANGE_LOG];
+    private long tileChangeCount;
     private MarioTilemap graphics;
     private MarioImage flag;
 
@@ -262,6 +270,12 @@ public class MarioLevel {
         }
         this.levelTiles[this.exitTileX][Math.max(1, this.exitTileY - 11)] = 39;
 
+        for (int x = 0; x < this.levelTiles.length; x++) {
+            for (int y = 0; y < this.levelTiles[x].length; y++) {
+                this.tileHash ^= MarioStateHash.tileKey(x, y, this.levelTiles[x][y]);
+            }
+        }
+
         if (visuals) {
             this.graphics = new MarioTilemap(Assets.level, this.levelTiles);
             this.flag = new MarioImage(Assets.level, 41);
@@ -271,7 +285,10 @@ public class MarioLevel {
     }
 
     public MarioLevel clone() {
-        MarioLevel level = new MarioLevel("", false);
+        MarioLevel level = MarioPool.get().obtain(MarioLevel.class);
+        if (level == null) {
+            level = new MarioLevel("", false);
+        }
         level.width = this.width;
         level.height = this.height;
         level.tileWidth = this.tileWidth;
@@ -281,24 +298,34 @@ public class MarioLevel {
         level.marioTileY = this.marioTileY;
         level.exitTileX = this.exitTileX;
         level.exitTileY = this.exitTileY;
-        level.levelTiles = new int[this.levelTiles.length][this.levelTiles[0].length];
-        level.lastSpawnTime = new int[this.levelTiles.length][this.levelTiles[0].length];
+        // a released level keeps its arrays if they have the same size
+        if (level.levelTiles == null || level.levelTiles.length != this.levelTiles.length ||
+                level.levelTiles[0].length != this.levelTiles[0].length) {
+            level.levelTiles = new int[this.levelTiles.length][this.levelTiles[0].length];
+            level.lastSpawnTime = new int[this.levelTiles.length][this.levelTiles[0].length];
+        }
         for (int x = 0; x < level.levelTiles.length; x++) {
-            for (int y = 0; y < level.levelTiles[x].length; y++) {
-                level.levelTiles[x][y] = this.levelTiles[x][y];
-                level.lastSpawnTime[x][y] = this.lastSpawnTime[x][y];
-            }
+            System.arraycopy(this.levelTiles[x], 0, level.levelTiles[x], 0, level.levelTiles[x].length);
+            System.arraycopy(this.lastSpawnTime[x], 0, level.lastSpawnTime[x], 0, level.lastSpawnTime[x].length);
         }
         level.spriteTemplates = this.spriteTemplates;
+        level.tileHash = this.tileHash;
+        level.spawnHash = this.spawnHash;
+        // the generalized tiles are shared until one of the levels changes a tile
+        System.arraycopy(this.generalizedTiles, 0, level.generalizedTiles, 0, this.generalizedTiles.length);
+        level.generalizedTilesShared = true;
+        this.generalizedTilesShared = true;
+        level.tileChangeCount = 0;
+        level.graphics = null;
+        level.flag = null;
         return level;
     }
 
     public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
         int block = this.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
-        boolean blocking = features.contains(TileFeature.BLOCK_ALL);
-        blocking |= (ya < 0) && features.contains(TileFeature.BLOCK_UPPER);
-        blocking |= (ya > 0) && features.contains(TileFeature.BLOCK_LOWER);
+        boolean blocking = TileFeature.hasFeature(block, TileFeature.BLOCK_ALL);
+        blocking |= (ya < 0) && TileFeature.hasFeature(block, TileFeature.BLOCK_UPPER);
+        blocking |= (ya > 0) && TileFeature.hasFeature(block, TileFeature.BLOCK_LOWER);
 
         return blocking;
     }
@@ -320,7 +347,71 @@ public class MarioLevel {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
+        this.tileHash ^= MarioStateHash.tileKey(xTile, yTile, this.levelTiles[xTile][yTile]) ^
+                MarioStateHash.tileKey(xTile, yTile, index);
         this.levelTiles[xTile][yTile] = index;
+        this.tileChanges[(int) (this.tileChangeCount % TILE_CHANGE_LOG)] = xTile * this.tileHeight + yTile;
+        this.tileChangeCount += 1;
+        if (this.generalizedTilesShared) {
+            for (int detail = 0; detail < this.generalizedTiles.length; detail++) {
+                if (this.generalizedTiles[detail] != null) {
+                    this.generalizedTiles[detail] = this.generalizedTiles[detail].clone();
+                }
+            }
+            this.generalizedTilesShared = false;
+        }
+        for (int detail = 0; detail < this.generalizedTiles.length; detail++) {
+            if (this.generalizedTiles[detail] != null) {
+                this.generalizedTiles[detail][xTile * this.tileHeight + yTile] =
+                        MarioForwardModel.getBlockValueGeneralization(index, detail);
+            }
+        }
+    }
+
+    /**
+     * Get the number of setBlock calls that changed a tile since the level was created
+     *
+     * @return number of tile changes
+     */
+    long getTileChangeCount() {
+        return this.tileChangeCount;
+    }
+
+    /**
+     * Get the position of a recent tile change
+     *
+     * @param change the number of the change, only the last TILE_CHANGE_LOG changes are kept
+     * @return the changed tile (x, y) as x * tileHeight + y, or -1 if the change is not kept anymore
+     */
+    int getTileChange(long change) {
+        if (change < 0 || change >= this.tileChangeCount || this.tileChangeCount - change > TILE_CHANGE_LOG) {
+            return -1;
+        }
+        return this.tileChanges[(int) (change % TILE_CHANGE_LOG)];
+    }
+
+    /**
+     * Get all the tiles of the level generalized to a detail level. The array is built on the first call
+     * and kept up to date by setBlock, it must not be changed by the caller.
+     *
+     * @param detail the generalization level of the tiles
+     * @return the generalized value of tile (x, y) at x * tileHeight + y, or null if there is no table for
+     * that detail level
+     */
+    int[] getGeneralizedTiles(int detail) {
+        if (detail < 0 || detail >= this.generalizedTiles.length) {
+            return null;
+        }
+        if (this.generalizedTiles[detail] == null) {
+            int[] tiles = new int[this.tileWidth * this.tileHeight];
+            for (int x = 0; x < this.tileWidth; x++) {
+                for (int y = 0; y < this.tileHeight; y++) {
+                    tiles[x * this.tileHeight + y] = MarioForwardModel.getBlockValueGeneralization(this.levelTiles[x][y], detail);
+                }
+            }
+            this.generalizedTiles[detail] = tiles;
+        }
+        return this.generalizedTiles[detail];
     }
 
     public void setShiftIndex(int xTile, int yTile, int shift) {
@@ -348,11 +439,41 @@ public class MarioLevel {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
+        this.spawnHash ^= MarioStateHash.tileKey(xTile, yTile, this.lastSpawnTime[xTile][yTile]) ^
+                MarioStateHash.tileKey(xTile, yTile, tick);
         this.lastSpawnTime[xTile][yTile] = tick;
     }
 
-    public String getSpriteCode(int xTile, int yTile) {
-        return xTile + "_" + yTile + "_" + this.getSpriteType(xTile, yTile).getValue();
+    /**
+     * Get a hash of all the tiles and spawn times of the level. The hash is updated incrementally
+     * whenever a tile or a spawn time changes.
+     *
+     * @return a 64 bit hash of the modifiable level state
+     */
+    public long getStateHash() {
+        return this.tileHash ^ MarioStateHash.mix(this.spawnHash);
+    }
+
+    /**
+     * Get a hash of all the tiles of the level without the spawn times, it is updated incrementally
+     * whenever a tile changes
+     *
+     * @return a 64 bit hash of the level tiles
+     */
+    public long getTileHash() {
+        return this.tileHash;
+    }
+
+    /**
+     * Get the code of the sprite template at a tile, the sprites spawned from the template keep it as their
+     * initialCode so the template is not spawned again while they are alive
+     *
+     * @param xTile the x position of the tile
+     * @param yTile the y position of the tile
+     * @return a number that is different for every tile of the level
+     */
+    public int getSpriteCode(int xTile, int yTile) {
+        return xTile * this.tileHeight + yTile;
     }
 
     private boolean isSolid(char c) {
@@ -0,0 +1,214 @@
+package engine.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import engine.helper.MetricType;
+import engine.helper.SpriteType;
+
+/**
+ * Counters and nanosecond timers of the engine hot paths, shared by all the worlds of the process. The
+ * metrics are only collected when the JVM is started with -Dmario.metrics=true. ENABLED is a static final
+ * so the JIT compiler removes the metric calls as dead code when the metrics are off.
+ * <p>
+ * The sprite update counters sum the update calls of every world, a sprite is counted once for each tick
+ * it lives. The live sprite gauges are the sprites of the game world at the end of its last tick, the
+ * clones used by the forward models don't change them.
+ * <p>
+ * The metrics can be printed with format, printed periodically with startDump or served in the
+ * Prometheus text format with startServer.
+ */
+public class MarioMetrics {
+    public static final boolean ENABLED = Boolean.getBoolean("mario.metrics");
+
+    private static final LongAdder[] counts = createAdders(MetricType.values().length);
+    private static final LongAdder[] nanos = createAdders(MetricType.values().length);
+    // sprite update calls for each sprite type summed over all the ticks of all the worlds, not sprites
+    private static final LongAdder[] spriteUpdates = createAdders(SpriteType.values().length);
+    // sprites of each type in the last updated game world at the end of its tick, clones don't change it
+    private static final AtomicLongArray liveSprites = new AtomicLongArray(SpriteType.values().length);
+
+    private static LongAdder[] createAdders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return the start time to pass to stop, 0 if the metrics are off
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Count an operation and add its time
+     *
+     * @param type  the operation
+     * @param start the value returned by start
+     */
+    public static void stop(MetricType type, long start) {
+        if (ENABLED) {
+            counts[type.ordinal()].increment();
+            nanos[type.ordinal()].add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count one update call of a sprite, a sprite alive for n ticks is counted n times
+     *
+     * @param type the type of the updated sprite
+     */
+    public static void countSpriteUpdate(SpriteType type) {
+        if (ENABLED) {
+            spriteUpdates[type.ordinal()].increment();
+        }
+    }
+
+    public static long getCount(MetricType type) {
+        return counts[type.ordinal()].sum();
+    }
+
+    public static long getNanos(MetricType type) {
+        return nanos[type.ordinal()].sum();
+    }
+
+    public static long getSpriteUpdates(SpriteType type) {
+        return spriteUpdates[type.ordinal()].sum();
+    }
+
+    /**
+     * Set the number of sprites of each type in the game world at the end of a tick
+     *
+     * @param counts the number of sprites indexed by the ordinal of their type
+     */
+    public static void setLiveSprites(int[] counts) {
+        if (ENABLED) {
+            for (int i = 0; i < counts.length; i++) {
+                liveSprites.set(i, counts[i]);
+            }
+        }
+    }
+
+    public static long getLiveSprites(SpriteType type) {
+        return liveSprites.get(type.ordinal());
+    }
+
+    /**
+     * Set all the metrics back to 0
+     */
+    public static void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].reset();
+            nanos[i].reset();
+        }
+        for (LongAdder adder : spriteUpdates) {
+            adder.reset();
+        }
+        for (int i = 0; i < liveSprites.length(); i++) {
+            liveSprites.set(i, 0);
+        }
+    }
+
+    /**
+     * Write all the metrics in the Prometheus text format
+     *
+     * @return one line for every metric
+     */
+    public static String format() {
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE mario_operations_total counter\n");
+        for (MetricType type : MetricType.values()) {
+            text.append("mario_operations_total{operation=\"").append(type.getName()).append("\"} ")
+                    .append(getCount(type)).append('\n');
+        }
+        text.append("# TYPE mario_operation_nanoseconds_total counter\n");
+        for (MetricType type : MetricType.values()) {
+            text.append("mario_operation_nanoseconds_total{operation=\"").append(type.getName()).append("\"} ")
+                    .append(getNanos(type)).append('\n');
+        }
+        text.append("# TYPE mario_sprite_updates_total counter\n");
+        for (SpriteType type : SpriteType.values()) {
+            long value = getSpriteUpdates(type);
+            if (value > 0) {
+                text.append("mario_sprite_updates_total{sprite=\"").append(type.name().toLowerCase()).append("\"} ")
+                        .append(value).append('\n');
+            }
+        }
+        text.append("# TYPE mario_sprites gauge\n");
+        for (SpriteType type : SpriteType.values()) {
+            if (type != SpriteType.NONE && type != SpriteType.UNDEF) {
+                text.append("mario_sprites{sprite=\"").append(type.name().toLowerCase()).append("\"} ")
+                        .append(getLiveSprites(type)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Print the metrics periodically on a daemon thread
+     *
+     * @param out          where the metrics are printed
+     * @param periodMillis milliseconds between two prints
+     * @return the scheduler, shut it down to stop printing
+     */
+    public static ScheduledExecutorService startDump(final PrintStream out, long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "mario-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                out.print(format());
+                out.flush();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Serve the metrics on http://localhost:port/metrics
+     *
+     * @param port the local port, 0 to use any free port
+     * @return the started server, stop it to close the port
+     * @throws IOException if the port can't be opened
+     */
+    public static HttpServer startServer(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = format().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,163 @@
+package engine.core;
+
+/**
+ * A scene observation grid that is kept between ticks instead of being built again on every call. The
+ * grid is stored as a ring buffer indexed by the map position of the tiles, so when the window moves only
+ * the columns and rows that become visible are filled, and the tiles changed by MarioLevel.setBlock since
+ * the last call are patched. The values are the same as MarioWorld.getSceneObservation.
+ */
+public class MarioObservationWindow {
+    private final int detail;
+    private final int width = MarioGame.tileWidth;
+    private final int height = MarioGame.tileHeight;
+    private final int[] tiles;
+
+    private MarioLevel level;
+    private long tileChangeCount;
+    private int startX;
+    private int startY;
+    private boolean filled;
+
+    /**
+     * Create an empty window, it is filled on the first update
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2 binary detail
+     */
+    public MarioObservationWindow(int detail) {
+        this.detail = detail;
+        this.tiles = new int[this.width * this.height];
+    }
+
+    public int getDetail() {
+        return this.detail;
+    }
+
+    /**
+     * Move the window to a new center and bring it up to date with the level
+     *
+     * @param level   the level that is observed
+     * @param centerX the x position of the center of the window in pixels
+     * @param centerY the y position of the center of the window in pixels
+     */
+    public void update(MarioLevel level, float centerX, float centerY) {
+        int startX = (int) centerX / 16 - this.width / 2;
+        int startY = (int) centerY / 16 - this.height / 2;
+        boolean missedChanges = this.tileChangeCount < level.getTileChangeCount() &&
+                level.getTileChange(this.tileChangeCount) < 0;
+        if (!this.filled || this.level != level || missedChanges) {
+            this.level = level;
+            this.startX = startX;
+            this.startY = startY;
+            this.fill(startX, startX + this.width, startY, startY + this.height);
+            this.tileChangeCount = level.getTileChangeCount();
+            this.filled = true;
+            return;
+        }
+
+        // patch the tiles that changed while they were visible
+        for (long change = this.tileChangeCount; change < level.getTileChangeCount(); change++) {
+            int tile = level.getTileChange(change);
+            this.patch(tile / level.tileHeight, tile % level.tileHeight);
+        }
+        this.tileChangeCount = level.getTileChangeCount();
+
+        int dx = startX - this.startX;
+        int dy = startY - this.startY;
+        if (Math.abs(dx) >= this.width || Math.abs(dy) >= this.height) {
+            this.startX = startX;
+            this.startY = startY;
+            this.fill(startX, startX + this.width, startY, startY + this.height);
+            return;
+        }
+        // new columns are filled for the old rows, then new rows are filled for all the new columns
+        if (dx > 0) {
+            this.fill(this.startX + this.width, startX + this.width, this.startY, this.startY + this.height);
+        } else if (dx < 0) {
+            this.fill(startX, this.startX, this.startY, this.startY + this.height);
+        }
+        this.startX = startX;
+        if (dy > 0) {
+            this.fill(startX, startX + this.width, this.startY + this.height, startY + this.height);
+        } else if (dy < 0) {
+            this.fill(startX, startX + this.width, startY, this.startY);
+        }
+        this.startY = startY;
+    }
+
+    private int getIndex(int mapX, int mapY) {
+        return Math.floorMod(mapX, this.width) * this.height + Math.floorMod(mapY, this.height);
+    }
+
+    private int getTileValue(int mapX, int mapY) {
+        int x = Math.max(0, Math.min(this.level.tileWidth - 1, mapX));
+        int y = Math.max(0, Math.min(this.level.tileHeight - 1, mapY));
+        int[] generalized = this.level.getGeneralizedTiles(this.detail);
+        if (generalized != null) {
+            return generalized[x * this.level.tileHeight + y];
+        }
+        return MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(x, y), this.detail);
+    }
+
+    private void fill(int fromX, int toX, int fromY, int toY) {
+        for (int mapX = fromX; mapX < toX; mapX++) {
+            for (int mapY = fromY; mapY < toY; mapY++) {
+                this.tiles[this.getIndex(mapX, mapY)] = this.getTileValue(mapX, mapY);
+            }
+        }
+    }
+
+    private void patch(int x, int y) {
+        // tiles on the level border are also shown for the positions outside of the level
+        for (int mapX = this.startX; mapX < this.startX + this.width; mapX++) {
+            if (Math.max(0, Math.min(this.level.tileWidth - 1, mapX)) != x) {
+                continue;
+            }
+            for (int mapY = this.startY; mapY < this.startY + this.height; mapY++) {
+                if (Math.max(0, Math.min(this.level.tileHeight - 1, mapY)) == y) {
+                    this.tiles[this.getIndex(mapX, mapY)] = this.getTileValue(mapX, mapY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the value of one tile of the window
+     *
+     * @param obsX the x position in the window
+     * @param obsY the y position in the window
+     * @return the same value as getSceneObservation(...)[obsX][obsY]
+     */
+    public int getValue(int obsX, int obsY) {
+        return this.tiles[this.getIndex(this.startX + obsX, this.startY + obsY)];
+    }
+
+    /**
+     * Copy the window to a flat grid, tile (obsX, obsY) is stored at offset + obsX * MarioGame.tileHeight + obsY
+     *
+     * @param buffer buffer that gets MarioGame.tileWidth * MarioGame.tileHeight values
+     * @param offset index of the first value in the buffer
+     */
+    public void get(int[] buffer, int offset) {
+        for (int obsX = 0; obsX < this.width; obsX++) {
+            this.getColumn(obsX, buffer, offset + obsX * this.height);
+        }
+    }
+
+    private void getColumn(int obsX, int[] buffer, int offset) {
+        int firstRow = Math.floorMod(this.startY, this.height);
+        int column = Math.floorMod(this.startX + obsX, this.width) * this.height;
+        System.arraycopy(this.tiles, column + firstRow, buffer, offset, this.height - firstRow);
+        System.arraycopy(this.tiles, column, buffer, offset + this.height - firstRow, firstRow);
+    }
+
+    /**
+     * Copy the window to a 2D grid
+     *
+     * @param grid grid that gets the same values as getSceneObservation
+     */
+    public void get(int[][] grid) {
+        for (int obsX = 0; obsX < this.width; obsX++) {
+            this.getColumn(obsX, grid[obsX], 0);
+        }
+    }
+}
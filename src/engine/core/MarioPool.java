@@ -0,0 +1,64 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Keeps released worlds, levels, sprites and effects so they can be reused instead of allocating new
+ * ones. Every thread has its own pool, an object is only reused by the thread that released it. An
+ * object must not be used anymore after it is released.
+ */
+public class MarioPool {
+    private static final int MAX_FREE = 256;
+
+    private static final ThreadLocal<MarioPool> pools = new ThreadLocal<MarioPool>() {
+        @Override
+        protected MarioPool initialValue() {
+            return new MarioPool();
+        }
+    };
+
+    private final HashMap<Class<?>, ArrayList<Object>> free = new HashMap<>();
+
+    /**
+     * Get the pool of the current thread
+     *
+     * @return the pool of the calling thread
+     */
+    public static MarioPool get() {
+        return pools.get();
+    }
+
+    /**
+     * Take a released object of a class
+     *
+     * @param type the exact class of the object
+     * @param <T>  the class of the object
+     * @return a released object that has to be reset by the caller, or null if there is none
+     */
+    public <T> T obtain(Class<T> type) {
+        ArrayList<Object> objects = this.free.get(type);
+        if (objects == null || objects.isEmpty()) {
+            return null;
+        }
+        return type.cast(objects.remove(objects.size() - 1));
+    }
+
+    /**
+     * Give an object back to the pool, the object is dropped if the pool already has enough objects of
+     * its class
+     *
+     * @param object an object that is not used by anyone anymore
+     */
+    public void release(Object object) {
+        ArrayList<Object> objects = this.free.get(object.getClass());
+        if (objects == null) {
+            // full capacity so releasing never grows the list while the game is running
+            objects = new ArrayList<>(MAX_FREE);
+            this.free.put(object.getClass(), objects);
+        }
+        if (objects.size() < MAX_FREE) {
+            objects.add(object);
+        }
+    }
+}
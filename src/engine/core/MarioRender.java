@@ -4,6 +4,7 @@ import javax.swing.*;
 
 import engine.helper.Assets;
 import engine.helper.MarioActions;
+import engine.helper.MetricType;
 
 import java.awt.*;
 import java.awt.event.FocusEvent;
@@ -13,6 +14,12 @@ import java.awt.event.FocusListener;
 public class MarioRender extends JComponent implements FocusListener {
     private static final long serialVersionUID = 790878775993203817L;
     public static final int TICKS_PER_SECOND = 24;
+    /**
+     * frames per second the render thread draws while it interpolates between two snapshots
+     */
+    public static final int DISPLAY_FPS = 60;
+    // snapshots further apart than this are not interpolated, the game was paused or stalled in between
+    private static final long MAX_INTERPOLATION_NANOS = 250000000L;
 
     private float scale;
     private GraphicsConfiguration graphicsConfiguration;
@@ -41,6 +48,19 @@ public class MarioRender extends JComponent implements FocusListener {
     }
 
     public void renderWorld(MarioWorld world, Image image, Graphics g, Graphics og) {
+        long metricsStart = MarioMetrics.start();
+        this.renderFrame(world, og);
+        this.drawFrame(image, g);
+        MarioMetrics.stop(MetricType.RENDER, metricsStart);
+    }
+
+    /**
+     * Draw the world and the status text into a frame at the size of the game
+     *
+     * @param world the world that is drawn
+     * @param og    the graphics of the frame
+     */
+    public void renderFrame(MarioWorld world, Graphics og) {
         og.fillRect(0, 0, 256, 240);
         world.render(og);
         drawStringDropShadow(og, "Lives: " + world.lives, 0, 0, 7);
@@ -55,6 +75,15 @@ public class MarioRender extends JComponent implements FocusListener {
             }
             drawStringDropShadow(og, "Buttons: " + pressedButtons, 0, 2, 1);
         }
+    }
+
+    /**
+     * Draw a frame on the screen at the scale of the window
+     *
+     * @param image the frame drawn by renderFrame
+     * @param g     the graphics of the screen
+     */
+    public void drawFrame(Image image, Graphics g) {
         if (scale > 1) {
             g.drawImage(image, 0, 0, (int) (256 * scale), (int) (240 * scale), null);
         } else {
@@ -62,6 +91,95 @@ public class MarioRender extends JComponent implements FocusListener {
         }
     }
 
+    /**
+     * Record a frame on the game thread, it is drawn later by the render thread
+     *
+     * @param world    the world that is drawn
+     * @param snapshot the snapshot the frame is recorded into
+     */
+    public void recordFrame(MarioWorld world, MarioRenderSnapshot snapshot) {
+        snapshot.clear(world);
+        this.renderFrame(world, snapshot);
+        snapshot.finish();
+    }
+
+    private float getInterpolation(MarioRenderSnapshot previous, MarioRenderSnapshot current, long frameNanos) {
+        if (previous == null) {
+            return 1;
+        }
+        long interval = current.getTime() - previous.getTime();
+        // a game that runs as fast as the screen or faster is drawn as it is
+        if (interval <= frameNanos || interval > MAX_INTERPOLATION_NANOS) {
+            return 1;
+        }
+        return Math.min(1, (float) (System.nanoTime() - current.getTime()) / interval);
+    }
+
+    /**
+     * Draw the snapshots of a frame buffer on the screen on a separate render thread, so the game thread
+     * only records the frames and never waits for the screen. When the game runs slower than DISPLAY_FPS
+     * the render thread draws frames in between the last two snapshots, which shows the game one frame
+     * late.
+     *
+     * @param frames the snapshots published by the game thread
+     */
+    public void startRenderThread(final MarioFrameBuffer frames) {
+        this.stopRenderThread();
+        final Graphics g = this.getGraphics();
+        final Image image = this.createVolatileImage(MarioGame.width, MarioGame.height);
+        final Graphics og = image.getGraphics();
+        final long frameNanos = 1000000000L / DISPLAY_FPS;
+        this.animator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MarioRenderSnapshot current = null;
+                MarioRenderSnapshot previous = null;
+                boolean settled = true;
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        MarioRenderSnapshot snapshot = frames.takeFrame(settled ? 100 : frameNanos / 1000000L);
+                        if (snapshot != null) {
+                            current = snapshot;
+                            previous = frames.getPrevious();
+                            settled = false;
+                        }
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    if (current == null || settled) {
+                        continue;
+                    }
+                    float alpha = getInterpolation(previous, current, frameNanos);
+                    settled = alpha >= 1;
+                    current.draw(og, previous, alpha);
+                    drawFrame(image, g);
+                    Toolkit.getDefaultToolkit().sync();
+                    frame += 1;
+                }
+                og.dispose();
+                g.dispose();
+            }
+        }, "mario-render");
+        this.animator.setDaemon(true);
+        this.animator.start();
+    }
+
+    /**
+     * Stop the render thread and wait until it stopped drawing
+     */
+    public void stopRenderThread() {
+        if (this.animator == null) {
+            return;
+        }
+        this.animator.interrupt();
+        try {
+            this.animator.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.animator = null;
+    }
+
     public void drawStringDropShadow(Graphics g, String text, int x, int y, int c) {
         drawString(g, text, x * 8 + 5, y * 8 + 5, 0);
         drawString(g, text, x * 8 + 4, y * 8 + 4, c);
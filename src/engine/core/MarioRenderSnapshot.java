@@ -0,0 +1,713 @@
+package engine.core;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.text.AttributedCharacterIterator;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A frame recorded on the game thread and drawn later on the render thread. The world is rendered into
+ * the snapshot like into any graphics, but the snapshot only keeps what is drawn: the sprite sheet image,
+ * its position and size, and the sprite or effect that drew it. Rendering into a snapshot still moves the
+ * effects and animates the tiles like a real frame, so a game plays the same whether it is drawn or
+ * recorded. The recorded images must not change after they are drawn, the sprite sheets and the
+ * backgrounds never do.
+ *
+ * Images and filled rectangles are kept in arrays since the world draws thousands of them every frame.
+ * Every other call is kept as an operation that repeats it on the render thread, including the state
+ * changes like translate, the font and the clip, and the graphics made by create, so anything an agent
+ * or a subclass draws shows up in the same order. Graphics made by create must not be used after the
+ * frame is finished.
+ */
+public class MarioRenderSnapshot extends Graphics {
+    // a sprite that moves further than this between two snapshots is drawn where it is, not in between
+    private static final int MAX_INTERPOLATION = 32;
+    private static final Font DEFAULT_FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
+
+    private static final int IMAGE = 0;
+    private static final int SCALED_IMAGE = 1;
+    private static final int IMAGE_REGION = 2;
+    private static final int FILL = 3;
+    // any other draw, moved with the camera like the fills
+    private static final int DRAW = 4;
+    // a change of the graphics state, it is never moved
+    private static final int STATE = 5;
+    // a graphics made by create, the first coordinate is its context
+    private static final int CREATE = 6;
+    private static final int DISPOSE = 7;
+
+    private interface Operation {
+        void apply(Graphics g);
+    }
+
+    // measures fonts for getFontMetrics, shared by all the snapshots
+    private static Graphics measure;
+
+    // the snapshot that keeps the draws, the snapshot itself or the one a graphics was created from
+    private final MarioRenderSnapshot root;
+    // the graphics the draws are made on, 0 for the snapshot, the graphics made by create count up
+    private final int context;
+
+    private long time;
+    private float cameraX;
+    private float cameraY;
+
+    private int count;
+    private int contexts;
+    private int[] kinds;
+    private int[] drawContexts;
+    private Image[] images;
+    private Color[] colors;
+    private Object[] keys;
+    private Operation[] operations;
+    private boolean[] worldSpace;
+    // 4 coordinates for images and fills, 8 for image regions
+    private int[] coordinates;
+    // the graphics of every context while the snapshot is drawn
+    private Graphics[] replay;
+
+    private Color color;
+    private Font font;
+    private Shape clip;
+    private Object key;
+    private boolean world;
+    private boolean disposed;
+
+    // the first draw of every sprite, used when this snapshot is the older one of an interpolation
+    private final IdentityHashMap<Object, Integer> keyIndex;
+
+    public MarioRenderSnapshot() {
+        this.root = this;
+        this.context = 0;
+        this.contexts = 1;
+        this.kinds = new int[256];
+        this.drawContexts = new int[256];
+        this.images = new Image[256];
+        this.colors = new Color[256];
+        this.keys = new Object[256];
+        this.operations = new Operation[256];
+        this.worldSpace = new boolean[256];
+        this.coordinates = new int[256 * 8];
+        this.replay = new Graphics[4];
+        this.font = DEFAULT_FONT;
+        this.keyIndex = new IdentityHashMap<>();
+    }
+
+    private MarioRenderSnapshot(MarioRenderSnapshot parent) {
+        this.root = parent.root;
+        this.context = this.root.contexts;
+        this.root.contexts += 1;
+        this.color = parent.color;
+        this.font = parent.font;
+        this.clip = parent.clip;
+        this.key = parent.key;
+        this.world = parent.world;
+        this.keyIndex = null;
+    }
+
+    /**
+     * Forget the draws of the last frame before a new frame is recorded
+     *
+     * @param world the world the frame shows
+     */
+    public void clear(MarioWorld world) {
+        Arrays.fill(this.images, 0, this.count, null);
+        Arrays.fill(this.colors, 0, this.count, null);
+        Arrays.fill(this.keys, 0, this.count, null);
+        Arrays.fill(this.operations, 0, this.count, null);
+        this.count = 0;
+        this.contexts = 1;
+        this.color = null;
+        this.font = DEFAULT_FONT;
+        this.clip = null;
+        this.key = null;
+        this.world = false;
+        this.cameraX = world.cameraX;
+        this.cameraY = world.cameraY;
+    }
+
+    /**
+     * Mark the recorded frame as complete
+     */
+    public void finish() {
+        this.time = System.nanoTime();
+    }
+
+    /**
+     * The System.nanoTime when the frame was recorded
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    /**
+     * Set the sprite or effect that the next draws belong to, draws of the same sprite in two snapshots
+     * are interpolated
+     *
+     * @param key the sprite or effect, null for draws that don't belong to one
+     */
+    public void setKey(Object key) {
+        this.key = key;
+    }
+
+    /**
+     * Set whether the next draws are placed in the level and move with the camera, or are placed on the
+     * screen like the status text
+     *
+     * @param world true for draws in the level
+     */
+    public void setWorldSpace(boolean world) {
+        this.world = world;
+    }
+
+    private int add(int kind, Image image) {
+        MarioRenderSnapshot root = this.root;
+        if (root.count == root.kinds.length) {
+            int length = root.count * 2;
+            root.kinds = Arrays.copyOf(root.kinds, length);
+            root.drawContexts = Arrays.copyOf(root.drawContexts, length);
+            root.images = Arrays.copyOf(root.images, length);
+            root.colors = Arrays.copyOf(root.colors, length);
+            root.keys = Arrays.copyOf(root.keys, length);
+            root.operations = Arrays.copyOf(root.operations, length);
+            root.worldSpace = Arrays.copyOf(root.worldSpace, length);
+            root.coordinates = Arrays.copyOf(root.coordinates, length * 8);
+        }
+        int index = root.count;
+        root.kinds[index] = kind;
+        root.drawContexts[index] = this.context;
+        root.images[index] = image;
+        root.colors[index] = this.color;
+        root.keys[index] = this.key;
+        root.worldSpace[index] = this.world;
+        root.count += 1;
+        return index * 8;
+    }
+
+    private void add(int kind, Operation operation) {
+        int offset = this.add(kind, (Image) null);
+        this.root.operations[offset / 8] = operation;
+    }
+
+    private void indexKeys() {
+        this.keyIndex.clear();
+        for (int i = this.count - 1; i >= 0; i--) {
+            if (this.keys[i] != null) {
+                this.keyIndex.put(this.keys[i], i);
+            }
+        }
+    }
+
+    /**
+     * Find the draw of an older snapshot that matches a draw of this snapshot
+     *
+     * @param previous the older snapshot, its keys are indexed
+     * @param index    the draw of this snapshot
+     * @param order    how many draws of the same sprite came before it in this snapshot
+     * @return the draw of the older snapshot, or -1 if the sprite wasn't drawn the same way
+     */
+    private int findPrevious(MarioRenderSnapshot previous, int index, int order) {
+        Integer first = previous.keyIndex.get(this.keys[index]);
+        if (first == null) {
+            return -1;
+        }
+        int match = first + order;
+        if (match >= previous.count || previous.keys[match] != this.keys[index]
+                || previous.kinds[match] != this.kinds[index]) {
+            return -1;
+        }
+        int offset = index * 8;
+        int matchOffset = match * 8;
+        // a sprite that turned around is drawn from its other side
+        if (this.kinds[index] == SCALED_IMAGE && (previous.coordinates[matchOffset + 2] != this.coordinates[offset + 2]
+                || previous.coordinates[matchOffset + 3] != this.coordinates[offset + 3])) {
+            return -1;
+        }
+        if (Math.abs(previous.coordinates[matchOffset] - this.coordinates[offset]) > MAX_INTERPOLATION
+                || Math.abs(previous.coordinates[matchOffset + 1] - this.coordinates[offset + 1]) > MAX_INTERPOLATION) {
+            return -1;
+        }
+        return match;
+    }
+
+    /**
+     * Draw the recorded frame, optionally in between an older snapshot and this one. Sprites drawn in both
+     * snapshots are placed in between their two positions, everything else in the level is moved with the
+     * camera in between. The state of g is not changed.
+     *
+     * @param g        the graphics of a frame at the size of the game
+     * @param previous the older snapshot, null to draw this snapshot as it is
+     * @param alpha    how far the frame is from the older snapshot to this one, 1 draws this snapshot as it
+     *                 is
+     */
+    public void draw(Graphics g, MarioRenderSnapshot previous, float alpha) {
+        float remaining = previous == null ? 0 : 1 - Math.max(0, Math.min(1, alpha));
+        int cameraShiftX = 0;
+        int cameraShiftY = 0;
+        if (remaining > 0) {
+            previous.indexKeys();
+            cameraShiftX = Math.round((this.cameraX - previous.cameraX) * remaining);
+            cameraShiftY = Math.round((this.cameraY - previous.cameraY) * remaining);
+        }
+        if (this.replay.length < this.contexts) {
+            this.replay = new Graphics[this.contexts];
+        }
+        this.replay[0] = g.create();
+        try {
+            int order = 0;
+            for (int i = 0; i < this.count; i++) {
+                order = i > 0 && this.keys[i] != null && this.keys[i] == this.keys[i - 1] ? order + 1 : 0;
+                Graphics target = this.replay[this.drawContexts[i]];
+                if (target == null) {
+                    continue;
+                }
+                int kind = this.kinds[i];
+                int offset = i * 8;
+                int shiftX = 0;
+                int shiftY = 0;
+                if (remaining > 0 && this.worldSpace[i] && kind <= DRAW) {
+                    int match = this.keys[i] == null || kind == DRAW ? -1 : this.findPrevious(previous, i, order);
+                    if (match >= 0) {
+                        shiftX = Math.round((previous.coordinates[match * 8] - this.coordinates[offset]) * remaining);
+                        shiftY = Math.round((previous.coordinates[match * 8 + 1] - this.coordinates[offset + 1]) * remaining);
+                    } else {
+                        shiftX = cameraShiftX;
+                        shiftY = cameraShiftY;
+                    }
+                }
+                int x = this.coordinates[offset] + shiftX;
+                int y = this.coordinates[offset + 1] + shiftY;
+                switch (kind) {
+                    case IMAGE:
+                        target.drawImage(this.images[i], x, y, null);
+                        break;
+                    case SCALED_IMAGE:
+                        target.drawImage(this.images[i], x, y, this.coordinates[offset + 2], this.coordinates[offset + 3], null);
+                        break;
+                    case IMAGE_REGION:
+                        target.drawImage(this.images[i], x, y, this.coordinates[offset + 2] + shiftX,
+                                this.coordinates[offset + 3] + shiftY, this.coordinates[offset + 4],
+                                this.coordinates[offset + 5], this.coordinates[offset + 6], this.coordinates[offset + 7], null);
+                        break;
+                    case FILL:
+                        if (this.colors[i] != null) {
+                            target.setColor(this.colors[i]);
+                        }
+                        target.fillRect(x, y, this.coordinates[offset + 2], this.coordinates[offset + 3]);
+                        break;
+                    case DRAW:
+                        if (this.colors[i] != null) {
+                            target.setColor(this.colors[i]);
+                        }
+                        target.translate(shiftX, shiftY);
+                        this.operations[i].apply(target);
+                        target.translate(-shiftX, -shiftY);
+                        break;
+                    case STATE:
+                        this.operations[i].apply(target);
+                        break;
+                    case CREATE:
+                        this.replay[this.coordinates[offset]] = target.create();
+                        break;
+                    default:
+                        target.dispose();
+                        this.replay[this.drawContexts[i]] = null;
+                        break;
+                }
+            }
+        } finally {
+            for (int i = 0; i < this.contexts; i++) {
+                if (this.replay[i] != null) {
+                    this.replay[i].dispose();
+                    this.replay[i] = null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        int offset = this.add(IMAGE, img);
+        this.root.coordinates[offset] = x;
+        this.root.coordinates[offset + 1] = y;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        int offset = this.add(SCALED_IMAGE, img);
+        int[] coordinates = this.root.coordinates;
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        coordinates[offset + 2] = width;
+        coordinates[offset + 3] = height;
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
+                             ImageObserver observer) {
+        int offset = this.add(IMAGE_REGION, img);
+        int[] coordinates = this.root.coordinates;
+        coordinates[offset] = dx1;
+        coordinates[offset + 1] = dy1;
+        coordinates[offset + 2] = dx2;
+        coordinates[offset + 3] = dy2;
+        coordinates[offset + 4] = sx1;
+        coordinates[offset + 5] = sy1;
+        coordinates[offset + 6] = sx2;
+        coordinates[offset + 7] = sy2;
+        return true;
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        int offset = this.add(FILL, (Image) null);
+        int[] coordinates = this.root.coordinates;
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        coordinates[offset + 2] = width;
+        coordinates[offset + 3] = height;
+    }
+
+    @Override
+    public Color getColor() {
+        return this.color;
+    }
+
+    @Override
+    public void setColor(Color c) {
+        this.color = c;
+    }
+
+    @Override
+    public Graphics create() {
+        MarioRenderSnapshot graphics = new MarioRenderSnapshot(this);
+        int offset = this.add(CREATE, (Image) null);
+        this.root.coordinates[offset] = graphics.context;
+        return graphics;
+    }
+
+    @Override
+    public void dispose() {
+        // the snapshot itself is reused for the next frame, only the graphics made by create end
+        if (this.context != 0 && !this.disposed) {
+            this.disposed = true;
+            this.add(DISPOSE, (Image) null);
+        }
+    }
+
+    @Override
+    public void translate(final int x, final int y) {
+        if (this.clip != null) {
+            this.clip = AffineTransform.getTranslateInstance(-x, -y).createTransformedShape(this.clip);
+        }
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.translate(x, y);
+            }
+        });
+    }
+
+    @Override
+    public void setPaintMode() {
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.setPaintMode();
+            }
+        });
+    }
+
+    @Override
+    public void setXORMode(final Color c1) {
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.setXORMode(c1);
+            }
+        });
+    }
+
+    @Override
+    public Font getFont() {
+        return this.font;
+    }
+
+    @Override
+    public void setFont(final Font font) {
+        if (font == null) {
+            return;
+        }
+        this.font = font;
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.setFont(font);
+            }
+        });
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font f) {
+        synchronized (MarioRenderSnapshot.class) {
+            if (measure == null) {
+                measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+            }
+            return measure.getFontMetrics(f);
+        }
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        return this.clip == null ? null : this.clip.getBounds();
+    }
+
+    @Override
+    public void clipRect(final int x, final int y, final int width, final int height) {
+        Rectangle rectangle = new Rectangle(x, y, width, height);
+        if (this.clip == null) {
+            this.clip = rectangle;
+        } else if (this.clip instanceof Rectangle) {
+            this.clip = ((Rectangle) this.clip).intersection(rectangle);
+        } else {
+            Area area = new Area(this.clip);
+            area.intersect(new Area(rectangle));
+            this.clip = area;
+        }
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.clipRect(x, y, width, height);
+            }
+        });
+    }
+
+    @Override
+    public void setClip(final int x, final int y, final int width, final int height) {
+        this.clip = new Rectangle(x, y, width, height);
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.setClip(x, y, width, height);
+            }
+        });
+    }
+
+    @Override
+    public Shape getClip() {
+        return this.clip;
+    }
+
+    @Override
+    public void setClip(Shape clip) {
+        // the caller may change its shape later, the snapshot keeps a copy
+        final Shape copy = clip == null ? null : new Area(clip);
+        this.clip = copy;
+        this.add(STATE, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.setClip(copy);
+            }
+        });
+    }
+
+    @Override
+    public void copyArea(final int x, final int y, final int width, final int height, final int dx, final int dy) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.copyArea(x, y, width, height, dx, dy);
+            }
+        });
+    }
+
+    @Override
+    public void drawLine(final int x1, final int y1, final int x2, final int y2) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawLine(x1, y1, x2, y2);
+            }
+        });
+    }
+
+    @Override
+    public void clearRect(final int x, final int y, final int width, final int height) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.clearRect(x, y, width, height);
+            }
+        });
+    }
+
+    @Override
+    public void drawRoundRect(final int x, final int y, final int width, final int height, final int arcWidth,
+                              final int arcHeight) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+            }
+        });
+    }
+
+    @Override
+    public void fillRoundRect(final int x, final int y, final int width, final int height, final int arcWidth,
+                              final int arcHeight) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+            }
+        });
+    }
+
+    @Override
+    public void drawOval(final int x, final int y, final int width, final int height) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawOval(x, y, width, height);
+            }
+        });
+    }
+
+    @Override
+    public void fillOval(final int x, final int y, final int width, final int height) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.fillOval(x, y, width, height);
+            }
+        });
+    }
+
+    @Override
+    public void drawArc(final int x, final int y, final int width, final int height, final int startAngle,
+                        final int arcAngle) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawArc(x, y, width, height, startAngle, arcAngle);
+            }
+        });
+    }
+
+    @Override
+    public void fillArc(final int x, final int y, final int width, final int height, final int startAngle,
+                        final int arcAngle) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.fillArc(x, y, width, height, startAngle, arcAngle);
+            }
+        });
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, final int nPoints) {
+        final int[] xCopy = Arrays.copyOf(xPoints, nPoints);
+        final int[] yCopy = Arrays.copyOf(yPoints, nPoints);
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawPolyline(xCopy, yCopy, nPoints);
+            }
+        });
+    }
+
+    @Override
+    public void drawPolygon(int[] xPoints, int[] yPoints, final int nPoints) {
+        final int[] xCopy = Arrays.copyOf(xPoints, nPoints);
+        final int[] yCopy = Arrays.copyOf(yPoints, nPoints);
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawPolygon(xCopy, yCopy, nPoints);
+            }
+        });
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, final int nPoints) {
+        final int[] xCopy = Arrays.copyOf(xPoints, nPoints);
+        final int[] yCopy = Arrays.copyOf(yPoints, nPoints);
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.fillPolygon(xCopy, yCopy, nPoints);
+            }
+        });
+    }
+
+    @Override
+    public void drawString(final String str, final int x, final int y) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawString(str, x, y);
+            }
+        });
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, final int x, final int y) {
+        // drawing moves the iterator, every replay draws its own copy
+        final AttributedCharacterIterator copy = (AttributedCharacterIterator) iterator.clone();
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawString((AttributedCharacterIterator) copy.clone(), x, y);
+            }
+        });
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final Color bgcolor, ImageObserver observer) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawImage(img, x, y, bgcolor, null);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int x, final int y, final int width, final int height,
+                             final Color bgcolor, ImageObserver observer) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawImage(img, x, y, width, height, bgcolor, null);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean drawImage(final Image img, final int dx1, final int dy1, final int dx2, final int dy2,
+                             final int sx1, final int sy1, final int sx2, final int sy2, final Color bgcolor,
+                             ImageObserver observer) {
+        this.add(DRAW, new Operation() {
+            @Override
+            public void apply(Graphics g) {
+                g.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, bgcolor, null);
+            }
+        });
+        return true;
+    }
+}
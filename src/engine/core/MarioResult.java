@@ -4,12 +4,19 @@ import java.util.ArrayList;
 
 import engine.helper.EventType;
 import engine.helper.GameStatus;
-import engine.helper.SpriteType;
+import engine.helper.OverrunSeverity;
 
 public class MarioResult {
     private MarioWorld world;
     private ArrayList<MarioEvent> gameEvents;
     private ArrayList<MarioAgentEvent> agentEvents;
+    private MarioTrajectory trajectory;
+    private MarioResultStatistics statistics;
+    private int latencyViolations;
+    private long maxAgentLatency;
+    private long agentInitializeLatency;
+    private MarioLatencyHistogram agentLatencies = new MarioLatencyHistogram();
+    private int[] budgetOverruns = new int[OverrunSeverity.values().length];
 
     /**
      * Create a mario result object
@@ -19,9 +26,40 @@ public class MarioResult {
      * @param agentEvents  the events that happens in the playthrough of the game
      */
     public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents) {
+        this(world, gameEvents, agentEvents, new MarioResultStatistics(gameEvents));
+    }
+
+    /**
+     * Create a mario result object from statistics that were collected while the game was played
+     *
+     * @param world       the current level world that is being used.
+     * @param gameEvents  the events that happens in the playthrough of the game, it can be empty if the
+     *                    events were not kept
+     * @param agentEvents the events that happens in the playthrough of the game
+     * @param statistics  the statistics of all the game events
+     */
+    public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents,
+                       MarioResultStatistics statistics) {
         this.world = world;
         this.gameEvents = gameEvents;
         this.agentEvents = agentEvents;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Create a mario result object from a recorded trajectory and statistics that were collected while the
+     * game was played
+     *
+     * @param world      the current level world that is being used.
+     * @param gameEvents the events that happens in the playthrough of the game, it can be empty if the
+     *                   events were not kept
+     * @param trajectory the agent actions and mario states of the game
+     * @param statistics the statistics of all the game events
+     */
+    public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, MarioTrajectory trajectory,
+                       MarioResultStatistics statistics) {
+        this(world, gameEvents, (ArrayList<MarioAgentEvent>) null, statistics);
+        this.trajectory = trajectory;
     }
 
     /**
@@ -82,23 +120,29 @@ public class MarioResult {
      * @return an arraylist that contains all the actions the agent has taken during game play
      */
     public ArrayList<MarioAgentEvent> getAgentEvents() {
+        if (this.agentEvents == null && this.trajectory != null) {
+            return this.trajectory.getAgentEvents();
+        }
         return this.agentEvents;
     }
 
+    /**
+     * Get the agent actions and mario states of every tick without creating an object for each tick
+     *
+     * @return the recorded trajectory, or null if the result was created from a list of agent events
+     */
+    public MarioTrajectory getTrajectory() {
+        return this.trajectory;
+    }
+
     /**
      * get the number of enemies killed in the game
      *
      * @return number of enemies killed in the game
      */
     public int getKillsTotal() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue() || e.getEventType() == EventType.FIRE_KILL.getValue() ||
-                    e.getEventType() == EventType.FALL_KILL.getValue() || e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getEventCount(EventType.STOMP_KILL) + this.statistics.getEventCount(EventType.FIRE_KILL) +
+                this.statistics.getEventCount(EventType.FALL_KILL) + this.statistics.getEventCount(EventType.SHELL_KILL);
     }
 
     /**
@@ -107,13 +151,7 @@ public class MarioResult {
      * @return number of enemies killed by fireballs
      */
     public int getKillsByFire() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getEventCount(EventType.FIRE_KILL);
     }
 
     /**
@@ -122,13 +160,7 @@ public class MarioResult {
      * @return number of enemies killed by stomping
      */
     public int getKillsByStomp() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getEventCount(EventType.STOMP_KILL);
     }
 
     /**
@@ -137,13 +169,7 @@ public class MarioResult {
      * @return number of enemies killed by a koopa shell
      */
     public int getKillsByShell() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getEventCount(EventType.SHELL_KILL);
     }
 
     /**
@@ -153,15 +179,7 @@ public class MarioResult {
      * @return number of a certain type of enemy that has been killed by Mario
      */
     public int getMarioNumKills(int enemyType) {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if ((e.getEventType() == EventType.SHELL_KILL.getValue()
-                    || e.getEventType() == EventType.FIRE_KILL.getValue()
-                    || e.getEventType() == EventType.STOMP_KILL.getValue()) && e.getEventParam() == enemyType) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKills(enemyType);
     }
 
     /**
@@ -170,13 +188,7 @@ public class MarioResult {
      * @return number of times mario got hurt
      */
     public int getMarioNumHurts() {
-        int hurt = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.HURT.getValue()) {
-                hurt += 1;
-            }
-        }
-        return hurt;
+        return this.statistics.getEventCount(EventType.HURT);
     }
 
     /**
@@ -185,13 +197,7 @@ public class MarioResult {
      * @return number of question mark block mario hit
      */
     public int getNumBumpQuestionBlock() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_QUESTION_BLOCK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.statistics.getBumpQuestionBlocks();
     }
 
     /**
@@ -200,13 +206,7 @@ public class MarioResult {
      * @return number of brick block mario hit
      */
     public int getNumBumpBrick() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_BRICK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.statistics.getBumpBricks();
     }
 
     /**
@@ -215,13 +215,7 @@ public class MarioResult {
      * @return the number of enemies that fell from the game screen
      */
     public int getKillsByFall() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getEventCount(EventType.FALL_KILL);
     }
 
     /**
@@ -230,13 +224,7 @@ public class MarioResult {
      * @return the number of jumps performed by mario during the game
      */
     public int getNumJumps() {
-        int jumps = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                jumps += 1;
-            }
-        }
-        return jumps;
+        return this.statistics.getEventCount(EventType.JUMP);
     }
 
     /**
@@ -245,19 +233,7 @@ public class MarioResult {
      * @return the maximum x distance traversed mario
      */
     public float getMaxXJump() {
-        float maxXJump = 0;
-        float startX = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startX = e.getMarioX();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (Math.abs(e.getMarioX() - startX) > maxXJump) {
-                    maxXJump = Math.abs(e.getMarioX() - startX);
-                }
-            }
-        }
-        return maxXJump;
+        return this.statistics.getMaxXJump();
     }
 
     /**
@@ -266,19 +242,7 @@ public class MarioResult {
      * @return the maximum amount of frames mario is being in the air
      */
     public int getMaxJumpAirTime() {
-        int maxAirJump = 0;
-        int startTime = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startTime = e.getTime();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (e.getTime() - startTime > maxAirJump) {
-                    maxAirJump = e.getTime() - startTime;
-                }
-            }
-        }
-        return maxAirJump;
+        return this.statistics.getMaxJumpAirTime();
     }
 
     /**
@@ -305,13 +269,7 @@ public class MarioResult {
      * @return the number of collected mushrooms by mario
      */
     public int getNumCollectedMushrooms() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getCollectedMushrooms();
     }
 
     /**
@@ -320,13 +278,7 @@ public class MarioResult {
      * @return the number of collected fire flowers by mario
      */
     public int getNumCollectedFireflower() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getCollectedFireflowers();
     }
 
     /**
@@ -335,13 +287,7 @@ public class MarioResult {
      * @return the number of collected coins by mario
      */
     public int getNumCollectedTileCoins() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == MarioForwardModel.OBS_COIN) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getCollectedTileCoins();
     }
 
     /**
@@ -350,13 +296,71 @@ public class MarioResult {
      * @return the number of destroyed bricks by large or fire mario
      */
     public int getNumDestroyedBricks() {
-        int bricks = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() &&
-                    e.getEventParam() == MarioForwardModel.OBS_BRICK && e.getMarioState() > 0) {
-                bricks += 1;
-            }
+        return this.statistics.getDestroyedBricks();
+    }
+
+    /**
+     * get the number of kills by stomp, fire or shell for every enemy type
+     *
+     * @return array of kills indexed by the enemy type value from SpriteType
+     */
+    public int[] getKillHistogram() {
+        return this.statistics.getKillHistogram();
+    }
+
+    void setAgentLatency(MarioAgentExecutor executor) {
+        this.latencyViolations = executor.getLatencyViolations();
+        this.maxAgentLatency = executor.getMaxLatency();
+        this.agentInitializeLatency = executor.getInitializeLatency();
+        this.agentLatencies = executor.getLatencyHistogram();
+        for (OverrunSeverity severity : OverrunSeverity.values()) {
+            this.budgetOverruns[severity.ordinal()] = executor.getBudgetOverruns(severity);
         }
-        return bricks;
+    }
+
+    /**
+     * get the number of agent steps that took longer than the agent deadline
+     *
+     * @return the number of agent deadline violations
+     */
+    public int getNumLatencyViolations() {
+        return this.latencyViolations;
+    }
+
+    /**
+     * get the longest time the agent took to return its actions
+     *
+     * @return the maximum agent latency in nanoseconds
+     */
+    public long getMaxAgentLatency() {
+        return this.maxAgentLatency;
+    }
+
+    /**
+     * get the time the agent initialize call took
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getAgentInitializeLatency() {
+        return this.agentInitializeLatency;
+    }
+
+    /**
+     * get the latencies of all the agent steps, histograms of several games can be combined with add
+     *
+     * @return the histogram of the agent latencies in nanoseconds
+     */
+    public MarioLatencyHistogram getAgentLatencyHistogram() {
+        return this.agentLatencies;
+    }
+
+    /**
+     * get the number of agent steps that spent more than their time or simulation budget
+     *
+     * @param severity how much the budget was exceeded
+     * @return the number of steps with that severity
+     */
+    public int getNumBudgetOverruns(OverrunSeverity severity) {
+        return this.budgetOverruns[severity.ordinal()];
     }
 }
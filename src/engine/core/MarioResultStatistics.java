@@ -0,0 +1,171 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+import engine.helper.EventType;
+import engine.helper.SpriteType;
+
+/**
+ * Counts everything MarioResult reports about the game events while the events happen, so the events
+ * don't have to be kept or scanned again for every statistic. It can be added as an event listener to a
+ * world or filled from a list of events.
+ */
+public class MarioResultStatistics implements MarioEventListener {
+    private static final int KILL_TYPES;
+
+    static {
+        int maxValue = 0;
+        for (SpriteType type : SpriteType.values()) {
+            maxValue = Math.max(maxValue, type.getValue());
+        }
+        KILL_TYPES = maxValue + 1;
+    }
+
+    private int[] eventCounts = new int[EventType.values().length + 1];
+    // kills by stomp, fire or shell for each enemy type value
+    private int[] killsByType = new int[KILL_TYPES];
+    private int bumpQuestionBlocks;
+    private int bumpBricks;
+    private int destroyedBricks;
+    private int collectedMushrooms;
+    private int collectedFireflowers;
+    private int collectedTileCoins;
+
+    private float jumpStartX = -100;
+    private int jumpStartTime = -100;
+    private float maxXJump;
+    private int maxJumpAirTime;
+
+    /**
+     * Create empty statistics
+     */
+    public MarioResultStatistics() {
+    }
+
+    /**
+     * Create the statistics of a list of events
+     *
+     * @param events the events that happened in the game in order
+     */
+    public MarioResultStatistics(ArrayList<MarioEvent> events) {
+        for (MarioEvent e : events) {
+            this.onEvent(e.getEventType(), e.getEventParam(), e.getMarioX(), e.getMarioY(), e.getMarioState(),
+                    e.getTime());
+        }
+    }
+
+    /**
+     * Count all the events of a frame
+     *
+     * @param events the events of the frame
+     */
+    public void addAll(MarioEventBuffer events) {
+        for (int i = 0; i < events.size(); i++) {
+            this.onEvent(events.getEventType(i), events.getEventParam(i), events.getMarioX(i), events.getMarioY(i),
+                    events.getMarioState(i), events.getTime(i));
+        }
+    }
+
+    @Override
+    public void onEvent(int eventType, int eventParam, float marioX, float marioY, int marioState, int time) {
+        if (eventType > 0 && eventType < this.eventCounts.length) {
+            this.eventCounts[eventType] += 1;
+        }
+        if (eventType == EventType.SHELL_KILL.getValue() || eventType == EventType.FIRE_KILL.getValue() ||
+                eventType == EventType.STOMP_KILL.getValue()) {
+            if (eventParam >= 0 && eventParam < KILL_TYPES) {
+                this.killsByType[eventParam] += 1;
+            }
+        } else if (eventType == EventType.BUMP.getValue()) {
+            if (eventParam == MarioForwardModel.OBS_QUESTION_BLOCK) {
+                this.bumpQuestionBlocks += 1;
+            }
+            if (eventParam == MarioForwardModel.OBS_BRICK) {
+                this.bumpBricks += 1;
+                if (marioState > 0) {
+                    this.destroyedBricks += 1;
+                }
+            }
+        } else if (eventType == EventType.COLLECT.getValue()) {
+            if (eventParam == SpriteType.MUSHROOM.getValue()) {
+                this.collectedMushrooms += 1;
+            }
+            if (eventParam == SpriteType.FIRE_FLOWER.getValue()) {
+                this.collectedFireflowers += 1;
+            }
+            if (eventParam == MarioForwardModel.OBS_COIN) {
+                this.collectedTileCoins += 1;
+            }
+        } else if (eventType == EventType.JUMP.getValue()) {
+            this.jumpStartX = marioX;
+            this.jumpStartTime = time;
+        } else if (eventType == EventType.LAND.getValue()) {
+            this.maxXJump = Math.max(this.maxXJump, Math.abs(marioX - this.jumpStartX));
+            this.maxJumpAirTime = Math.max(this.maxJumpAirTime, time - this.jumpStartTime);
+        }
+    }
+
+    /**
+     * Get the number of events of a certain type
+     *
+     * @param eventType the event type
+     * @return number of events of that type
+     */
+    public int getEventCount(EventType eventType) {
+        return this.eventCounts[eventType.getValue()];
+    }
+
+    /**
+     * Get the number of enemies of a certain type killed by mario (stomp, fire or shell)
+     *
+     * @param enemyType the enemy type value from SpriteType
+     * @return number of kills of that enemy type
+     */
+    public int getKills(int enemyType) {
+        if (enemyType < 0 || enemyType >= KILL_TYPES) {
+            return 0;
+        }
+        return this.killsByType[enemyType];
+    }
+
+    /**
+     * Get the kills of every enemy type
+     *
+     * @return a copy of the kill counts indexed by the enemy type value from SpriteType
+     */
+    public int[] getKillHistogram() {
+        return this.killsByType.clone();
+    }
+
+    public int getBumpQuestionBlocks() {
+        return this.bumpQuestionBlocks;
+    }
+
+    public int getBumpBricks() {
+        return this.bumpBricks;
+    }
+
+    public int getDestroyedBricks() {
+        return this.destroyedBricks;
+    }
+
+    public int getCollectedMushrooms() {
+        return this.collectedMushrooms;
+    }
+
+    public int getCollectedFireflowers() {
+        return this.collectedFireflowers;
+    }
+
+    public int getCollectedTileCoins() {
+        return this.collectedTileCoins;
+    }
+
+    public float getMaxXJump() {
+        return this.maxXJump;
+    }
+
+    public int getMaxJumpAirTime() {
+        return this.maxJumpAirTime;
+    }
+}
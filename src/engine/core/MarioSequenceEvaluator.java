@@ -0,0 +1,175 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+
+/**
+ * Evaluates many candidate action sequences that all start from the same forward model state. The
+ * sequences are merged into a trie of their common prefixes, every edge of the trie is simulated
+ * exactly once, and the forward model is only cloned where sequences branch apart.
+ */
+public class MarioSequenceEvaluator {
+    private static class Node {
+        private Node parent;
+        private boolean[] action;
+        private int actionKey;
+        private ArrayList<Node> children;
+        private ArrayList<Integer> sequences;
+
+        // outcome of reaching this node from the root
+        private int damage;
+        private int kills;
+        private ArrayList<MarioEvent> events;
+
+        private Node(Node parent, boolean[] action) {
+            this.parent = parent;
+            this.action = action;
+            this.actionKey = MarioActions.toMask(action);
+            this.children = new ArrayList<>();
+        }
+
+        private Node getChild(boolean[] action) {
+            int key = MarioActions.toMask(action);
+            for (Node child : this.children) {
+                if (child.actionKey == key) {
+                    return child;
+                }
+            }
+            Node child = new Node(this, action);
+            this.children.add(child);
+            return child;
+        }
+
+        private void addSequence(int index) {
+            if (this.sequences == null) {
+                this.sequences = new ArrayList<>();
+            }
+            this.sequences.add(index);
+        }
+    }
+
+    private int simulatedTicks;
+    private int requestedTicks;
+    private int clones;
+
+    /**
+     * Simulate all the action sequences starting from the input model. The input model is not modified.
+     *
+     * @param model     the starting state for all the sequences
+     * @param sequences a list of action sequences, each one is an array of button states for every tick
+     * @return an outcome for every sequence in the same order as the input list
+     */
+    public ArrayList<MarioSequenceResult> evaluate(MarioForwardModel model, ArrayList<boolean[][]> sequences) {
+        Node root = new Node(null, null);
+        this.requestedTicks = 0;
+        for (int i = 0; i < sequences.size(); i++) {
+            Node current = root;
+            for (boolean[] action : sequences.get(i)) {
+                current = current.getChild(action);
+            }
+            current.addSequence(i);
+            this.requestedTicks += sequences.get(i).length;
+        }
+
+        MarioSequenceResult[] results = new MarioSequenceResult[sequences.size()];
+        this.simulatedTicks = 0;
+        this.clones = 1;
+        this.simulate(root, model.clone(), results);
+
+        ArrayList<MarioSequenceResult> outcomes = new ArrayList<>(results.length);
+        for (MarioSequenceResult result : results) {
+            outcomes.add(result);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Get the number of forward model ticks simulated by the last evaluation
+     *
+     * @return the number of advance calls that were actually performed
+     */
+    public int getSimulatedTicks() {
+        return this.simulatedTicks;
+    }
+
+    /**
+     * Get the number of ticks the last evaluation would have needed if every sequence was simulated on its own
+     *
+     * @return the sum of all the sequences lengths
+     */
+    public int getRequestedTicks() {
+        return this.requestedTicks;
+    }
+
+    /**
+     * Get the number of forward model clones made by the last evaluation
+     *
+     * @return the number of clones including the clone of the starting state
+     */
+    public int getClones() {
+        return this.clones;
+    }
+
+    private void simulate(Node node, MarioForwardModel model, MarioSequenceResult[] results) {
+        while (true) {
+            if (node.sequences != null) {
+                this.record(node, model, results);
+            }
+            if (node.children.size() == 0) {
+                // the copies of the state are only used by the evaluation
+                model.release();
+                return;
+            }
+            // every branch except the last gets its own copy of the state
+            for (int i = 0; i < node.children.size() - 1; i++) {
+                Node child = node.children.get(i);
+                MarioForwardModel branch = model.clone();
+                this.clones += 1;
+                this.advance(child, branch);
+                this.simulate(child, branch, results);
+            }
+            // the last branch continues with the current state to avoid a clone
+            node = node.children.get(node.children.size() - 1);
+            this.advance(node, model);
+        }
+    }
+
+    private void advance(Node node, MarioForwardModel model) {
+        node.damage = node.parent.damage;
+        node.kills = node.parent.kills;
+        if (model.getGameStatus() != GameStatus.RUNNING) {
+            return;
+        }
+        int mode = model.getMarioMode();
+        int kills = model.getKillsTotal();
+        model.advance(node.action);
+        this.simulatedTicks += 1;
+        if (model.getMarioMode() < mode) {
+            node.damage += 1;
+        }
+        node.kills += model.getKillsTotal() - kills;
+        if (model.getLastFrameEventBuffer().size() > 0) {
+            node.events = new ArrayList<>(model.getLastFrameEvents());
+        }
+    }
+
+    private void record(Node node, MarioForwardModel model, MarioSequenceResult[] results) {
+        ArrayList<Node> path = new ArrayList<>();
+        for (Node current = node; current != null; current = current.parent) {
+            if (current.events != null) {
+                path.add(current);
+            }
+        }
+        ArrayList<MarioEvent> events = new ArrayList<>();
+        for (int i = path.size() - 1; i >= 0; i--) {
+            events.addAll(path.get(i).events);
+        }
+        float[] pos = model.getMarioFloatPos();
+        for (int index : node.sequences) {
+            results[index] = new MarioSequenceResult(index, pos[0], pos[1], model.getMarioMode(), node.damage,
+                    node.kills, model.getGameStatus(), new ArrayList<>(events));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+import engine.helper.GameStatus;
+
+public class MarioSequenceResult {
+    private int sequenceIndex;
+    private float marioX;
+    private float marioY;
+    private int marioMode;
+    private int damage;
+    private int kills;
+    private GameStatus gameStatus;
+    private ArrayList<MarioEvent> events;
+
+    /**
+     * Create the outcome of simulating one action sequence
+     *
+     * @param sequenceIndex the index of the sequence in the evaluated list
+     * @param marioX        mario x position after the last action
+     * @param marioY        mario y position after the last action
+     * @param marioMode     mario mode after the last action (0-small, 1-large, 2-fire)
+     * @param damage        number of times mario lost a power up state during the sequence
+     * @param kills         number of enemies killed during the sequence
+     * @param gameStatus    the state of the game after the last action
+     * @param events        all the events that happened during the sequence
+     */
+    public MarioSequenceResult(int sequenceIndex, float marioX, float marioY, int marioMode, int damage, int kills,
+            GameStatus gameStatus, ArrayList<MarioEvent> events) {
+        this.sequenceIndex = sequenceIndex;
+        this.marioX = marioX;
+        this.marioY = marioY;
+        this.marioMode = marioMode;
+        this.damage = damage;
+        this.kills = kills;
+        this.gameStatus = gameStatus;
+        this.events = events;
+    }
+
+    public int getSequenceIndex() {
+        return this.sequenceIndex;
+    }
+
+    public float getMarioX() {
+        return this.marioX;
+    }
+
+    public float getMarioY() {
+        return this.marioY;
+    }
+
+    public int getMarioMode() {
+        return this.marioMode;
+    }
+
+    public int getDamage() {
+        return this.damage;
+    }
+
+    public int getKills() {
+        return this.kills;
+    }
+
+    public GameStatus getGameStatus() {
+        return this.gameStatus;
+    }
+
+    public ArrayList<MarioEvent> getEvents() {
+        return this.events;
+    }
+}
@@ -9,14 +9,31 @@ public abstract class MarioSprite {
     //    public static SpriteContext spriteContext;
     public SpriteType type = SpriteType.UNDEF;
 
-    public String initialCode;
+    // the sprite code of the level template that spawned the sprite, -1 if it was not spawned by the level,
+    // it used to be a String, getInitialCode still returns the old text
+    public int initialCode;
     public float x, y, xa, ya;
     public int width, height, facing;
     public boolean alive;
     public MarioWorld world;
+    // set by the world when the sprite is removed until the sprite lists are compacted
+    boolean removed;
 
     public MarioSprite(float x, float y, SpriteType type) {
-        this.initialCode = "";
+        this.reset(x, y, type);
+    }
+
+    /**
+     * Reset the fields of a released sprite to the values of a new sprite, subclasses reset their own fields
+     * after calling it
+     *
+     * @param x    the x position of the sprite
+     * @param y    the y position of the sprite
+     * @param type the type of the sprite
+     */
+    protected void reset(float x, float y, SpriteType type) {
+        this.removed = false;
+        this.initialCode = -1;
         this.x = x;
         this.y = y;
         this.xa = 0;
@@ -33,6 +50,38 @@ public abstract class MarioSprite {
         return null;
     }
 
+    /**
+     * Get the code of the level template that spawned the sprite in the text form it had when initialCode
+     * was a String
+     *
+     * @return the tile position and the sprite type value of the template as "x_y_type", or an empty string if
+     * the sprite was not spawned by the level or is not in a world
+     * @deprecated compare the int initialCode with MarioLevel.getSpriteCode, which doesn't create a String
+     */
+    @Deprecated
+    public String getInitialCode() {
+        if (this.initialCode < 0 || this.world == null || this.world.level == null) {
+            return "";
+        }
+        MarioLevel level = this.world.level;
+        int xTile = this.initialCode / level.tileHeight;
+        int yTile = this.initialCode % level.tileHeight;
+        return xTile + "_" + yTile + "_" + level.getSpriteType(xTile, yTile).getValue();
+    }
+
+    public long getStateHash() {
+        long hash = MarioStateHash.mix(this.type.ordinal());
+        hash = MarioStateHash.combine(hash, this.x);
+        hash = MarioStateHash.combine(hash, this.y);
+        hash = MarioStateHash.combine(hash, this.xa);
+        hash = MarioStateHash.combine(hash, this.ya);
+        hash = MarioStateHash.combine(hash, this.width);
+        hash = MarioStateHash.combine(hash, this.height);
+        hash = MarioStateHash.combine(hash, this.facing);
+        hash = MarioStateHash.combine(hash, this.alive);
+        return MarioStateHash.combine(hash, this.initialCode);
+    }
+
     public void added() {
 
     }
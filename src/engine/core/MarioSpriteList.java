@@ -0,0 +1,65 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * The sprite list of a world. New sprites are added in front of the old ones, so the list stores the
+ * sprites in reverse order and adding to the front is an append. Removed sprites are only marked by the
+ * world and are dropped together by one compact pass at the end of the update, so adding and removing
+ * never shifts the whole list for every sprite.
+ */
+public class MarioSpriteList {
+    // the sprites from the last to the first
+    private MarioSprite[] sprites = new MarioSprite[16];
+    private int size;
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get a sprite in update order
+     *
+     * @param index the index of the sprite, 0 is the sprite that is updated first
+     * @return the sprite at that index
+     */
+    public MarioSprite get(int index) {
+        return this.sprites[this.size - 1 - index];
+    }
+
+    /**
+     * Add a sprite in front of all the sprites
+     *
+     * @param sprite the sprite to add
+     */
+    public void addFirst(MarioSprite sprite) {
+        if (this.size == this.sprites.length) {
+            this.sprites = Arrays.copyOf(this.sprites, 2 * this.sprites.length);
+        }
+        this.sprites[this.size] = sprite;
+        this.size += 1;
+    }
+
+    /**
+     * Remove all the sprites
+     */
+    public void clear() {
+        Arrays.fill(this.sprites, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * Remove all the sprites marked as removed, the order of the other sprites doesn't change
+     */
+    public void compact() {
+        int count = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (!this.sprites[i].removed) {
+                this.sprites[count] = this.sprites[i];
+                count += 1;
+            }
+        }
+        Arrays.fill(this.sprites, count, this.size, null);
+        this.size = count;
+    }
+}
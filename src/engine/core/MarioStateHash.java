@@ -0,0 +1,56 @@
+package engine.core;
+
+/**
+ * Helper functions used to build 64 bit zobrist style hashes of the simulation state. Keys are
+ * generated by mixing the input values instead of being read from random tables so the hash of
+ * a state is the same in every world and every run.
+ */
+public final class MarioStateHash {
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private MarioStateHash() {
+    }
+
+    /**
+     * Scramble the bits of a value (splitmix64 finalizer)
+     *
+     * @param value the input value
+     * @return a well distributed 64 bit value
+     */
+    public static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Get the zobrist key of a value stored at a certain tile of the level
+     *
+     * @param xTile the x tile position
+     * @param yTile the y tile position
+     * @param value the value stored at that tile
+     * @return the key that should be xored in or out of the hash
+     */
+    public static long tileKey(int xTile, int yTile, int value) {
+        return mix(SEED + (((long) xTile << 40) ^ ((long) yTile << 32) ^ (value & 0xFFFFFFFFL)));
+    }
+
+    /**
+     * Append a value to an order dependent hash
+     *
+     * @param hash  the current hash
+     * @param value the value to append
+     * @return the new hash
+     */
+    public static long combine(long hash, long value) {
+        return mix(hash + SEED + value);
+    }
+
+    public static long combine(long hash, float value) {
+        return combine(hash, Float.floatToIntBits(value));
+    }
+
+    public static long combine(long hash, boolean value) {
+        return combine(hash, value ? 1L : 0L);
+    }
+}
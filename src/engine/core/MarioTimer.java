@@ -1,30 +1,175 @@
 package engine.core;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
 /**
  * Mario timer object used to control the agents so they won't exceed the allowed time.
+ * <p>
+ * The timer either measures wall clock time, the CPU time of the agent thread or, when created with
+ * simulation costs, a deterministic budget that is only spent by the forward models the agent advances
+ * and clones. The last two modes make agent strength less dependent on the machine load. Time is measured
+ * with nanosecond clocks and reported in milliseconds.
  *
  * @author AhmedKhalifa
  */
 public class MarioTimer {
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
     private long startTimer;
     private long remainingTime;
 
+    // cpu time budget
+    private boolean cpuTime;
+    private long threadId;
+    private long startCpuTime;
+
+    // simulation budget
+    private boolean simulationBudget;
+    private long advanceCost;
+    private long cloneCost;
+    private long advanceCount;
+    private long cloneCount;
+
     /**
      * Start a timer
      *
      * @param remainingTime the amount of milliseconds before the timer runs out
      */
     public MarioTimer(long remainingTime) {
-        this.startTimer = System.currentTimeMillis();
+        this.startTimer = System.nanoTime();
         this.remainingTime = remainingTime;
     }
 
+    /**
+     * Start a timer that measures wall clock time or the CPU time of the agent thread
+     *
+     * @param remainingTime the amount of milliseconds before the timer runs out
+     * @param cpuTime       true to only count the CPU time of the thread that runs the agent, wall clock time
+     *                      is used anyway if the JVM can't measure thread CPU time
+     */
+    public MarioTimer(long remainingTime, boolean cpuTime) {
+        this(remainingTime);
+        this.cpuTime = cpuTime && threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+        this.startOnCurrentThread();
+    }
+
+    /**
+     * Start a timer that is charged by the forward model calls instead of the wall clock
+     *
+     * @param budget      the amount of budget before the timer runs out
+     * @param advanceCost the amount of budget spent by every MarioForwardModel.advance call
+     * @param cloneCost   the amount of budget spent by every MarioForwardModel.clone call
+     */
+    public MarioTimer(long budget, long advanceCost, long cloneCost) {
+        this(budget);
+        this.simulationBudget = true;
+        this.advanceCost = advanceCost;
+        this.cloneCost = cloneCost;
+    }
+
+    /**
+     * Start the timer again with the same amount of time or budget
+     */
+    public void restart() {
+        this.startTimer = System.nanoTime();
+        this.advanceCount = 0;
+        this.cloneCount = 0;
+        this.startOnCurrentThread();
+    }
+
+    /**
+     * Charge the CPU time of the current thread from now on, it does nothing if the timer is not
+     * measuring CPU time
+     */
+    void startOnCurrentThread() {
+        if (this.cpuTime) {
+            this.threadId = Thread.currentThread().getId();
+            this.startCpuTime = threads.getCurrentThreadCpuTime();
+        }
+    }
+
+    /**
+     * Check if the timer is counting forward model calls instead of milliseconds
+     *
+     * @return true if the timer is using a simulation budget
+     */
+    public boolean isSimulationBudget() {
+        return this.simulationBudget;
+    }
+
+    /**
+     * Check if the timer is counting the CPU time of the agent thread instead of wall clock time
+     *
+     * @return true if the timer is using CPU time
+     */
+    public boolean isCpuTime() {
+        return this.cpuTime;
+    }
+
+    private long getElapsedNanos() {
+        if (this.cpuTime) {
+            return threads.getThreadCpuTime(this.threadId) - this.startCpuTime;
+        }
+        return System.nanoTime() - this.startTimer;
+    }
+
+    private long getSpentBudget() {
+        return this.advanceCount * this.advanceCost + this.cloneCount * this.cloneCost;
+    }
+
+    /**
+     * Get the part of the budget that is spent
+     *
+     * @return the spent time or simulation budget divided by the budget, more than 1 if the budget is
+     * exceeded, 0 if the budget is 0
+     */
+    public double getBudgetUsage() {
+        if (this.remainingTime <= 0) {
+            return 0;
+        }
+        if (this.simulationBudget) {
+            return (double) this.getSpentBudget() / this.remainingTime;
+        }
+        return this.getElapsedNanos() / (this.remainingTime * 1e6);
+    }
+
+    void chargeAdvance() {
+        this.advanceCount += 1;
+    }
+
+    void chargeClone() {
+        this.cloneCount += 1;
+    }
+
+    /**
+     * Get the number of forward model advance calls since the timer started
+     *
+     * @return number of advance calls charged to this timer
+     */
+    public long getAdvanceCount() {
+        return this.advanceCount;
+    }
+
+    /**
+     * Get the number of forward model clone calls since the timer started
+     *
+     * @return number of clone calls charged to this timer
+     */
+    public long getCloneCount() {
+        return this.cloneCount;
+    }
+
     /**
      * Get the remaining time in that timer since construction
      *
-     * @return number of milliseconds remaining in that timer.
+     * @return number of milliseconds remaining in that timer, or the remaining simulation budget if the timer
+     * is using a simulation budget. In CPU time mode only the CPU time of the agent thread is counted.
      */
     public long getRemainingTime() {
-        return Math.max(0, this.remainingTime - (System.currentTimeMillis() - this.startTimer));
+        if (this.simulationBudget) {
+            return Math.max(0, this.remainingTime - this.getSpentBudget());
+        }
+        return Math.max(0, this.remainingTime - this.getElapsedNanos() / 1000000);
     }
 }
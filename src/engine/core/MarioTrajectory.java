@@ -0,0 +1,197 @@
+package engine.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+import engine.helper.MarioActions;
+
+/**
+ * Records the agent actions and mario state of every game tick in primitive arrays instead of one
+ * MarioAgentEvent object per tick. The values are stored in fixed size chunks so the recorder never copies
+ * what it already stored. Each tick can also be written to a stream as soon as it is recorded, in that case
+ * keeping the ticks in memory can be turned off.
+ * <p>
+ * Every tick is written as 15 bytes: the action bits (byte), mario x (float), mario y (float), mario state
+ * (byte), mario on ground (boolean) and the tick (int).
+ */
+public class MarioTrajectory {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ArrayList<byte[]> actions = new ArrayList<>();
+    private final ArrayList<float[]> marioX = new ArrayList<>();
+    private final ArrayList<float[]> marioY = new ArrayList<>();
+    private final ArrayList<byte[]> marioStates = new ArrayList<>();
+    private final ArrayList<boolean[]> marioOnGround = new ArrayList<>();
+    private final ArrayList<int[]> times = new ArrayList<>();
+    private int size;
+    private ArrayList<MarioAgentEvent> agentEvents;
+
+    private boolean keepInMemory = true;
+    private DataOutput output;
+
+    /**
+     * Create an empty trajectory that keeps all the ticks in memory
+     */
+    public MarioTrajectory() {
+    }
+
+    /**
+     * Create an empty trajectory that writes every tick to an output
+     *
+     * @param output       where the ticks are written, it is not closed by the trajectory
+     * @param keepInMemory true to keep the ticks in memory too
+     */
+    public MarioTrajectory(DataOutput output, boolean keepInMemory) {
+        this.output = output;
+        this.keepInMemory = keepInMemory;
+    }
+
+    /**
+     * Read a trajectory that was written by a trajectory
+     *
+     * @param input the written ticks, read until the end of the input
+     * @return a trajectory with all the ticks in memory
+     * @throws IOException if the input can't be read
+     */
+    public static MarioTrajectory read(DataInput input) throws IOException {
+        MarioTrajectory trajectory = new MarioTrajectory();
+        while (true) {
+            int actions;
+            try {
+                actions = input.readUnsignedByte();
+            } catch (EOFException e) {
+                return trajectory;
+            }
+            float x = input.readFloat();
+            float y = input.readFloat();
+            int state = input.readByte();
+            boolean onGround = input.readBoolean();
+            int time = input.readInt();
+            trajectory.add(actions, x, y, state, onGround, time);
+        }
+    }
+
+    /**
+     * Record one tick
+     *
+     * @param actions       the actions the agent returned
+     * @param marioX        mario x position after the tick
+     * @param marioY        mario y position after the tick
+     * @param marioState    mario state after the tick (0 small, 1 large, 2 fire)
+     * @param marioOnGround true if mario is on the ground after the tick
+     * @param time          the tick
+     */
+    public void add(boolean[] actions, float marioX, float marioY, int marioState, boolean marioOnGround, int time) {
+        this.add(MarioActions.toMask(actions), marioX, marioY, marioState, marioOnGround, time);
+    }
+
+    /**
+     * Record one tick
+     *
+     * @param actions       the action mask the agent returned (see MarioActions.getMask)
+     * @param marioX        mario x position after the tick
+     * @param marioY        mario y position after the tick
+     * @param marioState    mario state after the tick (0 small, 1 large, 2 fire)
+     * @param marioOnGround true if mario is on the ground after the tick
+     * @param time          the tick
+     */
+    public void add(int actions, float marioX, float marioY, int marioState, boolean marioOnGround, int time) {
+        if (this.output != null) {
+            try {
+                this.output.writeByte(actions);
+                this.output.writeFloat(marioX);
+                this.output.writeFloat(marioY);
+                this.output.writeByte(marioState);
+                this.output.writeBoolean(marioOnGround);
+                this.output.writeInt(time);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!this.keepInMemory) {
+            return;
+        }
+        if (this.size % CHUNK_SIZE == 0) {
+            this.actions.add(new byte[CHUNK_SIZE]);
+            this.marioX.add(new float[CHUNK_SIZE]);
+            this.marioY.add(new float[CHUNK_SIZE]);
+            this.marioStates.add(new byte[CHUNK_SIZE]);
+            this.marioOnGround.add(new boolean[CHUNK_SIZE]);
+            this.times.add(new int[CHUNK_SIZE]);
+        }
+        int chunk = this.size / CHUNK_SIZE;
+        int index = this.size % CHUNK_SIZE;
+        this.actions.get(chunk)[index] = (byte) actions;
+        this.marioX.get(chunk)[index] = marioX;
+        this.marioY.get(chunk)[index] = marioY;
+        this.marioStates.get(chunk)[index] = (byte) marioState;
+        this.marioOnGround.get(chunk)[index] = marioOnGround;
+        this.times.get(chunk)[index] = time;
+        this.size += 1;
+        this.agentEvents = null;
+    }
+
+    /**
+     * Get the number of ticks kept in memory
+     *
+     * @return number of recorded ticks
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the actions of a tick as bits, action i is set if (bits >> i) & 1 is 1
+     *
+     * @param tick the index of the tick
+     * @return the action bits of the tick
+     */
+    public int getActionBits(int tick) {
+        return this.actions.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE] & 0xff;
+    }
+
+    public boolean[] getActions(int tick) {
+        return MarioActions.fromMask(this.getActionBits(tick));
+    }
+
+    public float getMarioX(int tick) {
+        return this.marioX.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE];
+    }
+
+    public float getMarioY(int tick) {
+        return this.marioY.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE];
+    }
+
+    public int getMarioState(int tick) {
+        return this.marioStates.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE];
+    }
+
+    public boolean getMarioOnGround(int tick) {
+        return this.marioOnGround.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE];
+    }
+
+    public int getTime(int tick) {
+        return this.times.get(tick / CHUNK_SIZE)[tick % CHUNK_SIZE];
+    }
+
+    /**
+     * Get the recorded ticks as MarioAgentEvent objects, the list is created on the first call after a tick
+     * was recorded
+     *
+     * @return an arrayList with one event for every recorded tick
+     */
+    public ArrayList<MarioAgentEvent> getAgentEvents() {
+        if (this.agentEvents == null) {
+            this.agentEvents = new ArrayList<>(this.size);
+            for (int i = 0; i < this.size; i++) {
+                this.agentEvents.add(new MarioAgentEvent(this.getActions(i), this.getMarioX(i), this.getMarioY(i),
+                        this.getMarioState(i), this.getMarioOnGround(i), this.getTime(i)));
+            }
+        }
+        return this.agentEvents;
+    }
+}
@@ -0,0 +1,130 @@
+package engine.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size table that maps state hashes (see MarioForwardModel.getStateHash and getSearchHash) to a
+ * long value.
+ * The table never grows, a new entry always replaces the entry that was in its slot. It can be
+ * shared between threads without locks: every slot stores the key xored with the value next to the
+ * value, so a slot that is being written by another thread is read as a miss instead of a wrong hit.
+ */
+public class MarioTranspositionTable {
+    /**
+     * the largest number of entries, every entry uses two longs of one array
+     */
+    public static final int MAX_CAPACITY = 1 << 29;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * Create an empty table
+     *
+     * @param capacity the maximum number of entries, rounded up to the next power of two and at most
+     *                 MAX_CAPACITY
+     */
+    public MarioTranspositionTable(int capacity) {
+        int size = 1;
+        while (size < Math.min(capacity, MAX_CAPACITY)) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.entries = new AtomicLongArray(2 * size);
+    }
+
+    private static long checkKey(long hash) {
+        // zero is used to mark empty slots
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int getSlot(long hash) {
+        return 2 * ((int) (hash ^ (hash >>> 32)) & this.mask);
+    }
+
+    /**
+     * Store a value for a state, replacing whatever was stored in the same slot
+     *
+     * @param hash  the state hash
+     * @param value the value to store
+     */
+    public void put(long hash, long value) {
+        hash = checkKey(hash);
+        int slot = this.getSlot(hash);
+        this.entries.set(slot + 1, value);
+        this.entries.set(slot, hash ^ value);
+    }
+
+    /**
+     * Get the stored value of a state
+     *
+     * @param hash         the state hash
+     * @param defaultValue value returned when the state is not in the table
+     * @return the stored value or defaultValue if the state is not found
+     */
+    public long get(long hash, long defaultValue) {
+        hash = checkKey(hash);
+        int slot = this.getSlot(hash);
+        long check = this.entries.get(slot);
+        long value = this.entries.get(slot + 1);
+        if ((check ^ value) == hash) {
+            return value;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Check if a state is in the table
+     *
+     * @param hash the state hash
+     * @return true if the state was stored and not replaced yet
+     */
+    public boolean contains(long hash) {
+        hash = checkKey(hash);
+        int slot = this.getSlot(hash);
+        return (this.entries.get(slot) ^ this.entries.get(slot + 1)) == hash;
+    }
+
+    /**
+     * Mark a state as visited, useful to skip duplicate states while searching. When threads visit the same
+     * state at the same time only one of them gets true. Like the rest of the table it is lossy: a state
+     * whose slot is replaced by another state, even by a put while it is being visited, is visited again.
+     *
+     * @param hash the state hash, MarioForwardModel.getSearchHash so a state reached at another tick is a
+     *             duplicate too
+     * @return true if the state was not in the table before this call and false otherwise
+     */
+    public boolean visit(long hash) {
+        hash = checkKey(hash);
+        int slot = this.getSlot(hash);
+        while (true) {
+            long check = this.entries.get(slot);
+            if ((check ^ this.entries.get(slot + 1)) == hash) {
+                return false;
+            }
+            // a visited state has the value 0, so its check is the key itself
+            this.entries.set(slot + 1, 0);
+            if (this.entries.compareAndSet(slot, check, hash)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries from the table
+     */
+    public void clear() {
+        for (int i = 0; i < this.entries.length(); i++) {
+            this.entries.set(i, 0);
+        }
+    }
+
+    /**
+     * Get the number of slots in the table
+     *
+     * @return the maximum number of entries the table can hold
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+}
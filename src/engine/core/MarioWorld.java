@@ -3,15 +3,27 @@ package engine.core;
 import java.awt.Graphics;
 import java.awt.GraphicsConfiguration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import engine.effects.*;
 import engine.graphics.MarioBackground;
 import engine.helper.EventType;
 import engine.helper.GameStatus;
+import engine.helper.MarioActions;
+import engine.helper.MetricType;
 import engine.helper.SpriteType;
 import engine.helper.TileFeature;
 import engine.sprites.*;
 
+/**
+ * The state of a game: the level, mario, the other sprites and the events of the last update.
+ * <p>
+ * Migration note: the public lastFrameEvents field, an ArrayList of MarioEvent, was removed because the
+ * events of an update are now kept as primitives in a MarioEventBuffer. Read them with
+ * getLastFrameEventBuffer, or with the deprecated getLastFrameEvents that creates the MarioEvent objects,
+ * and add a MarioEventListener to get every event when it happens.
+ */
 public class MarioWorld {
     public GameStatus gameStatus;
     public int pauseTimer = 0;
@@ -25,10 +37,23 @@ public class MarioWorld {
     public int currentTick;
     //Status
     public int coins, lives;
-    public ArrayList<MarioEvent> lastFrameEvents;
 
-    private MarioEvent[] killEvents;
-    private ArrayList<MarioSprite> sprites;
+    private MarioEventBuffer lastFrameEvents;
+    private ArrayList<MarioEventListener> eventListeners;
+    private MarioKillConditions killConditions;
+    // kill events matched by the events of the current tick
+    private long[] killMatches;
+    private boolean killMatched;
+    // scene windows around the screen and mario for each detail level, they are not copied by clone
+    private MarioObservationWindow[] sceneWindows;
+    private MarioSpriteList sprites;
+    // the sprites of each type except mario in the same order as the sprites list
+    private MarioSpriteList enemies;
+    private MarioSpriteList shells;
+    private MarioSpriteList fireballs;
+    private MarioSpriteList items;
+    // the enemies and the shells together in the same order, the only sprites that shells and fireballs hit
+    private MarioSpriteList targets;
     private ArrayList<Shell> shellsToCheck;
     private ArrayList<Fireball> fireballsToCheck;
     private ArrayList<MarioSprite> addedSprites;
@@ -36,19 +61,39 @@ public class MarioWorld {
 
     private ArrayList<MarioEffect> effects;
 
+    private long stateHash;
+    private boolean stateHashValid;
+    private long searchHash;
+    private boolean searchHashValid;
+
     private MarioBackground[] backgrounds = new MarioBackground[2];
+    // clones are owned by the pool, the sprites they remove go back to it, the game world leaves them to the gc
+    private boolean pooled;
+    // the sprites of each type at the end of the last tick, only counted for the metrics of the game world
+    private int[] liveSprites;
 
     public MarioWorld(MarioEvent[] killEvents) {
+        this(killEvents != null ? new MarioKillConditions(killEvents) : null);
+    }
+
+    private MarioWorld(MarioKillConditions killConditions) {
         this.pauseTimer = 0;
         this.gameStatus = GameStatus.RUNNING;
-        this.sprites = new ArrayList<>();
-        this.shellsToCheck = new ArrayList<>();
-        this.fireballsToCheck = new ArrayList<>();
-        this.addedSprites = new ArrayList<>();
-        this.removedSprites = new ArrayList<>();
+        this.sprites = new MarioSpriteList();
+        this.enemies = new MarioSpriteList();
+        this.shells = new MarioSpriteList();
+        this.fireballs = new MarioSpriteList();
+        this.items = new MarioSpriteList();
+        this.targets = new MarioSpriteList();
+        // the lists that are filled every tick get their capacity now so the first ticks don't grow them
+        this.shellsToCheck = new ArrayList<>(16);
+        this.fireballsToCheck = new ArrayList<>(16);
+        this.addedSprites = new ArrayList<>(16);
+        this.removedSprites = new ArrayList<>(16);
         this.effects = new ArrayList<>();
-        this.lastFrameEvents = new ArrayList<>();
-        this.killEvents = killEvents;
+        this.lastFrameEvents = new MarioEventBuffer();
+        this.eventListeners = new ArrayList<>();
+        this.killConditions = killConditions;
     }
 
     public void initializeVisuals(GraphicsConfiguration graphicsConfig) {
@@ -92,22 +137,63 @@ public class MarioWorld {
         this.mario = new Mario(this.visuals, this.level.marioTileX * 16, this.level.marioTileY * 16);
         this.mario.alive = true;
         this.mario.world = this;
-        this.sprites.add(this.mario);
+        this.sprites.addFirst(this.mario);
     }
 
     public ArrayList<MarioSprite> getEnemies() {
-        ArrayList<MarioSprite> enemies = new ArrayList<>();
-        for (MarioSprite sprite : sprites) {
-            if (this.isEnemy(sprite)) {
-                enemies.add(sprite);
-            }
+        ArrayList<MarioSprite> enemies = new ArrayList<>(this.enemies.size());
+        for (int i = 0; i < this.enemies.size(); i++) {
+            enemies.add(this.enemies.get(i));
         }
         return enemies;
     }
 
+    /**
+     * Add a sprite in front of the sprites of its type, mario has no list because he is always the first
+     * sprite of the world and so the last one that is updated
+     *
+     * @param sprite the sprite that was added in front of the sprites list
+     */
+    private void addToPartitions(MarioSprite sprite) {
+        if (sprite.type.isEnemy()) {
+            this.enemies.addFirst(sprite);
+            this.targets.addFirst(sprite);
+        } else if (sprite.type == SpriteType.SHELL) {
+            this.shells.addFirst(sprite);
+            this.targets.addFirst(sprite);
+        } else if (sprite.type == SpriteType.FIREBALL) {
+            this.fireballs.addFirst(sprite);
+        } else if (sprite.type != SpriteType.MARIO) {
+            this.items.addFirst(sprite);
+        }
+    }
+
+    private void compactPartitions() {
+        this.enemies.compact();
+        this.shells.compact();
+        this.fireballs.compact();
+        this.items.compact();
+        this.targets.compact();
+    }
+
+    private void clearPartitions() {
+        this.enemies.clear();
+        this.shells.clear();
+        this.fireballs.clear();
+        this.items.clear();
+        this.targets.clear();
+    }
+
     public MarioWorld clone() {
-        MarioWorld world = new MarioWorld(this.killEvents);
+        long metricsStart = MarioMetrics.start();
+        MarioWorld world = MarioPool.get().obtain(MarioWorld.class);
+        if (world == null) {
+            world = new MarioWorld(this.killConditions);
+        } else {
+            world.reset(this.killConditions);
+        }
         world.visuals = false;
+        world.pooled = true;
         world.cameraX = this.cameraX;
         world.cameraY = this.cameraY;
         world.fireballsOnScreen = this.fireballsOnScreen;
@@ -116,13 +202,15 @@ public class MarioWorld {
         world.currentTimer = this.currentTimer;
         world.currentTick = this.currentTick;
         world.level = this.level.clone();
-        for (MarioSprite sprite : this.sprites) {
-            MarioSprite cloneSprite = sprite.clone();
+        // the sprites are added from the last to the first so they end up in the same order
+        for (int i = this.sprites.size() - 1; i >= 0; i--) {
+            MarioSprite cloneSprite = this.sprites.get(i).clone();
             cloneSprite.world = world;
             if (cloneSprite.type == SpriteType.MARIO) {
                 world.mario = (Mario) cloneSprite;
             }
-            world.sprites.add(cloneSprite);
+            world.sprites.addFirst(cloneSprite);
+            world.addToPartitions(cloneSprite);
         }
         if (world.mario == null) {
             world.mario = (Mario) this.mario.clone();
@@ -130,9 +218,124 @@ public class MarioWorld {
         //stats
         world.coins = this.coins;
         world.lives = this.lives;
+        MarioMetrics.stop(MetricType.CLONE, metricsStart);
         return world;
     }
 
+    private void reset(MarioKillConditions killConditions) {
+        this.gameStatus = GameStatus.RUNNING;
+        this.pauseTimer = 0;
+        this.fireballsOnScreen = 0;
+        this.currentTimer = -1;
+        this.cameraX = 0;
+        this.cameraY = 0;
+        this.mario = null;
+        this.level = null;
+        this.visuals = false;
+        this.currentTick = 0;
+        this.coins = 0;
+        this.lives = 0;
+        if (this.killConditions != killConditions) {
+            this.killConditions = killConditions;
+            this.killMatches = null;
+        } else if (this.killMatched) {
+            this.killConditions.clear(this.killMatches);
+        }
+        this.killMatched = false;
+        this.sceneWindows = null;
+        this.stateHashValid = false;
+        this.searchHashValid = false;
+        Arrays.fill(this.backgrounds, null);
+    }
+
+    /**
+     * Give the sprites, the level and the world to the pool of the current thread so the next clones can
+     * reuse them. The world must not be used anymore after it is released.
+     */
+    public void release() {
+        MarioPool pool = MarioPool.get();
+        boolean marioReleased = false;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            marioReleased |= sprite == this.mario;
+            sprite.world = null;
+            pool.release(sprite);
+        }
+        if (!marioReleased && this.mario != null) {
+            pool.release(this.mario);
+        }
+        for (int i = 0; i < this.effects.size(); i++) {
+            pool.release(this.effects.get(i));
+        }
+        if (this.level != null) {
+            pool.release(this.level);
+        }
+        this.sprites.clear();
+        this.clearPartitions();
+        this.shellsToCheck.clear();
+        this.fireballsToCheck.clear();
+        this.addedSprites.clear();
+        this.removedSprites.clear();
+        this.effects.clear();
+        this.lastFrameEvents.clear();
+        this.eventListeners.clear();
+        this.mario = null;
+        this.level = null;
+        pool.release(this);
+    }
+
+    /**
+     * Get a 64 bit hash of the full simulation state. Level tiles and spawn times are hashed
+     * incrementally by the level while the sprites are hashed on request, the result is cached until
+     * the world is updated again.
+     *
+     * @return a hash that is equal for two worlds that will behave the same from now on, including the
+     * tick and the remaining time
+     */
+    public long getStateHash() {
+        if (this.stateHashValid) {
+            return this.stateHash;
+        }
+        long hash = this.level.getStateHash();
+        hash = MarioStateHash.combine(hash, this.currentTimer);
+        hash = MarioStateHash.combine(hash, this.currentTick);
+        this.stateHash = this.hashSprites(hash);
+        this.stateHashValid = true;
+        return this.stateHash;
+    }
+
+    /**
+     * Get a 64 bit hash of the simulation state without the tick, the remaining time and the spawn ticks
+     * of the level, so the same state reached at different ticks gets the same hash. Search agents use it
+     * to find states they already expanded. The result is cached until the world is updated again.
+     *
+     * @return a hash that is equal for two worlds in the same state at any tick
+     */
+    public long getSearchHash() {
+        if (this.searchHashValid) {
+            return this.searchHash;
+        }
+        this.searchHash = this.hashSprites(this.level.getTileHash());
+        this.searchHashValid = true;
+        return this.searchHash;
+    }
+
+    private long hashSprites(long hash) {
+        hash = MarioStateHash.combine(hash, this.gameStatus.ordinal());
+        hash = MarioStateHash.combine(hash, this.pauseTimer);
+        hash = MarioStateHash.combine(hash, this.fireballsOnScreen);
+        hash = MarioStateHash.combine(hash, this.cameraX);
+        hash = MarioStateHash.combine(hash, this.cameraY);
+        hash = MarioStateHash.combine(hash, this.coins);
+        hash = MarioStateHash.combine(hash, this.lives);
+        hash = MarioStateHash.combine(hash, this.mario.getStateHash());
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            hash = MarioStateHash.combine(hash, sprite.getStateHash());
+        }
+        return hash;
+    }
+
     public void addEvent(EventType eventType, int eventParam) {
         int marioState = 0;
         if (this.mario.isLarge) {
@@ -141,7 +344,51 @@ public class MarioWorld {
         if (this.mario.isFire) {
             marioState = 2;
         }
-        this.lastFrameEvents.add(new MarioEvent(eventType, eventParam, mario.x, mario.y, marioState, this.currentTick));
+        this.lastFrameEvents.add(eventType.getValue(), eventParam, mario.x, mario.y, marioState, this.currentTick);
+        if (this.killConditions != null && this.killConditions.hasType(eventType.getValue())) {
+            if (this.killMatches == null) {
+                this.killMatches = this.killConditions.createMatches();
+            }
+            this.killMatched |= this.killConditions.match(eventType.getValue(), eventParam, this.killMatches);
+        }
+        for (int i = 0; i < this.eventListeners.size(); i++) {
+            this.eventListeners.get(i).onEvent(eventType.getValue(), eventParam, mario.x, mario.y, marioState,
+                    this.currentTick);
+        }
+    }
+
+    /**
+     * Get the events that happened during the last update, it replaces the removed lastFrameEvents field
+     *
+     * @return a list of the events, the MarioEvent objects are created on the first call after the update
+     * @deprecated use getLastFrameEventBuffer, which doesn't create an object for every event
+     */
+    @Deprecated
+    public List<MarioEvent> getLastFrameEvents() {
+        return this.lastFrameEvents.getEvents();
+    }
+
+    /**
+     * Get the events that happened during the last update without creating MarioEvent objects, the buffer is
+     * reused by the next update
+     *
+     * @return the event buffer of the world
+     */
+    public MarioEventBuffer getLastFrameEventBuffer() {
+        return this.lastFrameEvents;
+    }
+
+    /**
+     * Call a listener for every event of this world from now on, the listeners are not copied by clone
+     *
+     * @param listener the listener to add
+     */
+    public void addEventListener(MarioEventListener listener) {
+        this.eventListeners.add(listener);
+    }
+
+    public void removeEventListener(MarioEventListener listener) {
+        this.eventListeners.remove(listener);
     }
 
     public void addEffect(MarioEffect effect) {
@@ -158,6 +405,7 @@ public class MarioWorld {
 
     public void removeSprite(MarioSprite sprite) {
         this.removedSprites.add(sprite);
+        sprite.removed = true;
         sprite.alive = false;
         sprite.removed();
         sprite.world = null;
@@ -187,34 +435,105 @@ public class MarioWorld {
         this.mario.alive = false;
     }
 
+    /**
+     * Get the scene window around the center of the screen, the same window object is returned and moved
+     * on every call
+     *
+     * @param detail the generalization level of the tiles
+     * @return a window with the same values as getSceneObservation
+     */
+    public MarioObservationWindow getScreenSceneWindow(int detail) {
+        return this.getSceneWindow(0, this.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail);
+    }
+
+    /**
+     * Get the scene window around mario, the same window object is returned and moved on every call
+     *
+     * @param detail the generalization level of the tiles
+     * @return a window with the same values as getSceneObservation
+     */
+    public MarioObservationWindow getMarioSceneWindow(int detail) {
+        return this.getSceneWindow(1, this.mario.x, this.mario.y, detail);
+    }
+
+    private MarioObservationWindow getSceneWindow(int index, float centerX, float centerY, int detail) {
+        MarioObservationWindow window;
+        if (detail < 0 || detail >= MarioForwardModel.OBS_DETAIL_LEVELS) {
+            window = new MarioObservationWindow(detail);
+        } else {
+            if (this.sceneWindows == null) {
+                this.sceneWindows = new MarioObservationWindow[2 * MarioForwardModel.OBS_DETAIL_LEVELS];
+            }
+            if (this.sceneWindows[2 * detail + index] == null) {
+                this.sceneWindows[2 * detail + index] = new MarioObservationWindow(detail);
+            }
+            window = this.sceneWindows[2 * detail + index];
+        }
+        window.update(this.level, centerX, centerY);
+        return window;
+    }
+
+    /**
+     * Copy one column of generalized tiles of the observation window into a buffer
+     *
+     * @param mapX     the x tile of the column, it is clamped to the level
+     * @param startY   the y tile of the first value
+     * @param detail   the generalization level of the tiles
+     * @param clampY   copy the nearest tile for rows above or below the level if true, otherwise use empty tiles
+     * @param buffer   buffer that gets MarioGame.tileHeight values
+     * @param offset   index of the first value in the buffer
+     */
+    private void getSceneColumn(int mapX, int startY, int detail, boolean clampY, int[] buffer, int offset) {
+        if (mapX < 0) {
+            mapX = 0;
+        }
+        if (mapX > this.level.tileWidth - 1) {
+            mapX = this.level.tileWidth - 1;
+        }
+        int[] tiles = this.level.getGeneralizedTiles(detail);
+        int first = Math.max(0, -startY);
+        int last = Math.min(MarioGame.tileHeight, this.level.tileHeight - startY);
+        if (tiles != null && first < last) {
+            System.arraycopy(tiles, mapX * this.level.tileHeight + startY + first, buffer, offset + first, last - first);
+        } else {
+            for (int obsY = first; obsY < last; obsY++) {
+                buffer[offset + obsY] = MarioForwardModel.getBlockValueGeneralization(
+                        this.level.getBlock(mapX, startY + obsY), detail);
+            }
+        }
+        if (first == 0 && last == MarioGame.tileHeight) {
+            return;
+        }
+        int top = MarioForwardModel.getBlockValueGeneralization(0, detail);
+        int bottom = top;
+        if (clampY) {
+            top = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(mapX, 0), detail);
+            bottom = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(mapX, this.level.tileHeight - 1), detail);
+        }
+        for (int obsY = 0; obsY < MarioGame.tileHeight; obsY++) {
+            if (startY + obsY < 0) {
+                buffer[offset + obsY] = top;
+            } else if (startY + obsY > this.level.tileHeight - 1) {
+                buffer[offset + obsY] = bottom;
+            }
+        }
+    }
+
     public int[][] getSceneObservation(float centerX, float centerY, int detail) {
+        long metricsStart = MarioMetrics.start();
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
 
-        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
-            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
-                }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(currentX, currentY), detail);
-            }
+        for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
+            this.getSceneColumn(x, centerYInMap - MarioGame.tileHeight / 2, detail, true, ret[obsX], 0);
         }
+        MarioMetrics.stop(MetricType.OBSERVATION, metricsStart);
         return ret;
     }
 
     public int[][] getEnemiesObservation(float centerX, float centerY, int detail) {
+        long metricsStart = MarioMetrics.start();
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
@@ -223,7 +542,8 @@ public class MarioWorld {
             for (int h = 0; h < ret[0].length; h++)
                 ret[w][h] = 0;
 
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type == SpriteType.MARIO)
                 continue;
             if (sprite.getMapX() >= 0 &&
@@ -237,35 +557,23 @@ public class MarioWorld {
                 ret[obsX][obsY] = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, detail);
             }
         }
+        MarioMetrics.stop(MetricType.OBSERVATION, metricsStart);
         return ret;
     }
 
     public int[][] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail) {
+        long metricsStart = MarioMetrics.start();
         int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
 
-        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
-            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
-                }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(x, y), sceneDetail);
-            }
+        for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
+            // the merged observation always used empty tiles above and below the level
+            this.getSceneColumn(x, centerYInMap - MarioGame.tileHeight / 2, sceneDetail, false, ret[obsX], 0);
         }
 
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type == SpriteType.MARIO)
                 continue;
             if (sprite.getMapX() >= 0 &&
@@ -282,15 +590,143 @@ public class MarioWorld {
                 }
             }
         }
-
+        MarioMetrics.stop(MetricType.OBSERVATION, metricsStart);
         return ret;
     }
 
-    private boolean isEnemy(MarioSprite sprite) {
-        return sprite instanceof Enemy || sprite instanceof FlowerEnemy || sprite instanceof BulletBill;
+    /**
+     * Fill flat observation grids around a point in one pass over the window, any of the grids can be null to
+     * skip it. The grids are stored like the int[][] observations, the value of tile (obsX, obsY) is at
+     * offset + obsX * MarioGame.tileHeight + obsY so every grid takes MarioGame.tileWidth * MarioGame.tileHeight
+     * values.
+     *
+     * @param centerX        the x position of the center of the grids in pixels
+     * @param centerY        the y position of the center of the grids in pixels
+     * @param sceneDetail    the generalization level of the tiles
+     * @param enemiesDetail  the generalization level of the sprites
+     * @param scene          buffer for the scene grid, same values as getSceneObservation
+     * @param sceneOffset    index of the first value of the scene grid
+     * @param enemies        buffer for the enemies grid, same values as getEnemiesObservation
+     * @param enemiesOffset  index of the first value of the enemies grid
+     * @param merged         buffer for the merged grid, same values as getMergedObservation
+     * @param mergedOffset   index of the first value of the merged grid
+     */
+    public void getObservations(float centerX, float centerY, int sceneDetail, int enemiesDetail,
+                                int[] scene, int sceneOffset, int[] enemies, int enemiesOffset, int[] merged, int mergedOffset) {
+        long metricsStart = MarioMetrics.start();
+        int centerXInMap = (int) centerX / 16;
+        int centerYInMap = (int) centerY / 16;
+        int startX = centerXInMap - MarioGame.tileWidth / 2;
+        int startY = centerYInMap - MarioGame.tileHeight / 2;
+
+        for (int obsX = 0; obsX < MarioGame.tileWidth; obsX++) {
+            if (scene != null) {
+                this.getSceneColumn(startX + obsX, startY, sceneDetail, true, scene, sceneOffset + obsX * MarioGame.tileHeight);
+            }
+            if (merged != null) {
+                this.getSceneColumn(startX + obsX, startY, sceneDetail, false, merged, mergedOffset + obsX * MarioGame.tileHeight);
+            }
+        }
+        if (enemies != null) {
+            for (int i = 0; i < MarioGame.tileWidth * MarioGame.tileHeight; i++) {
+                enemies[enemiesOffset + i] = 0;
+            }
+        }
+        if (enemies == null && merged == null) {
+            MarioMetrics.stop(MetricType.OBSERVATION, metricsStart);
+            return;
+        }
+
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (sprite.type == SpriteType.MARIO)
+                continue;
+            int mapX = sprite.getMapX();
+            int mapY = sprite.getMapY();
+            if (mapX >= 0 && mapX > startX && mapX < centerXInMap + MarioGame.tileWidth / 2 &&
+                    mapY >= 0 && mapY > startY && mapY < centerYInMap + MarioGame.tileHeight / 2) {
+                int index = (mapX - startX) * MarioGame.tileHeight + mapY - startY;
+                int value = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, enemiesDetail);
+                if (enemies != null) {
+                    enemies[enemiesOffset + index] = value;
+                }
+                if (merged != null && value != SpriteType.NONE.getValue()) {
+                    merged[mergedOffset + index] = value;
+                }
+            }
+        }
+        MarioMetrics.stop(MetricType.OBSERVATION, metricsStart);
+    }
+
+    /**
+     * Fill a flat scene grid around a point, see getObservations for the layout of the grid
+     *
+     * @param centerX the x position of the center of the grid in pixels
+     * @param centerY the y position of the center of the grid in pixels
+     * @param detail  the generalization level of the tiles
+     * @param buffer  buffer for the grid
+     * @param offset  index of the first value of the grid
+     */
+    public void getSceneObservation(float centerX, float centerY, int detail, int[] buffer, int offset) {
+        this.getObservations(centerX, centerY, detail, 0, buffer, offset, null, 0, null, 0);
+    }
+
+    /**
+     * Fill a flat enemies grid around a point, see getObservations for the layout of the grid
+     *
+     * @param centerX the x position of the center of the grid in pixels
+     * @param centerY the y position of the center of the grid in pixels
+     * @param detail  the generalization level of the sprites
+     * @param buffer  buffer for the grid
+     * @param offset  index of the first value of the grid
+     */
+    public void getEnemiesObservation(float centerX, float centerY, int detail, int[] buffer, int offset) {
+        this.getObservations(centerX, centerY, 0, detail, null, 0, buffer, offset, null, 0);
+    }
+
+    /**
+     * Fill a flat merged grid around a point, see getObservations for the layout of the grid
+     *
+     * @param centerX       the x position of the center of the grid in pixels
+     * @param centerY       the y position of the center of the grid in pixels
+     * @param sceneDetail   the generalization level of the tiles
+     * @param enemiesDetail the generalization level of the sprites
+     * @param buffer        buffer for the grid
+     * @param offset        index of the first value of the grid
+     */
+    public void getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail,
+                                     int[] buffer, int offset) {
+        this.getObservations(centerX, centerY, sceneDetail, enemiesDetail, null, 0, null, 0, buffer, offset);
+    }
+
+    /**
+     * Fill a buffer with the type, x position and y position of every enemy
+     *
+     * @param buffer buffer that gets 3 floats for each enemy, enemies that don't fit are skipped
+     * @return the number of enemies in the world, even the ones that didn't fit in the buffer
+     */
+    public int getEnemiesFloatPos(float[] buffer) {
+        for (int i = 0; i < this.enemies.size() && 3 * i + 2 < buffer.length; i++) {
+            MarioSprite sprite = this.enemies.get(i);
+            buffer[3 * i] = sprite.type.getValue();
+            buffer[3 * i + 1] = sprite.x;
+            buffer[3 * i + 2] = sprite.y;
+        }
+        return this.enemies.size();
     }
 
     public void update(boolean[] actions) {
+        this.update(MarioActions.toMask(actions));
+    }
+
+    /**
+     * Update the world one tick using an action mask
+     *
+     * @param actions a mask with the bit of every pressed button set (see MarioActions.getMask)
+     */
+    public void update(int actions) {
+        this.stateHashValid = false;
+        this.searchHashValid = false;
         if (this.gameStatus != GameStatus.RUNNING) {
             return;
         }
@@ -327,25 +763,34 @@ public class MarioWorld {
         }
 
         this.lastFrameEvents.clear();
+        if (this.killMatched) {
+            this.killConditions.clear(this.killMatches);
+            this.killMatched = false;
+        }
 
-        this.fireballsOnScreen = 0;
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.x < cameraX - 64 || sprite.x > cameraX + MarioGame.width + 64 || sprite.y > this.level.height + 32) {
                 if (sprite.type == SpriteType.MARIO) {
                     this.lose();
                 }
                 this.removeSprite(sprite);
-                if (this.isEnemy(sprite) && sprite.y > MarioGame.height + 32) {
+                if (sprite.type.isEnemy() && sprite.y > MarioGame.height + 32) {
                     this.addEvent(EventType.FALL_KILL, sprite.type.getValue());
                 }
-                continue;
             }
-            if (sprite.type == SpriteType.FIREBALL) {
+        }
+        this.fireballsOnScreen = 0;
+        for (int i = 0; i < this.fireballs.size(); i++) {
+            if (!this.fireballs.get(i).removed) {
                 this.fireballsOnScreen += 1;
             }
         }
+        long metricsStart = MarioMetrics.start();
         this.level.update((int) cameraX, (int) cameraY);
+        MarioMetrics.stop(MetricType.LEVEL_UPDATE, metricsStart);
 
+        metricsStart = MarioMetrics.start();
         for (int x = (int) cameraX / 16 - 1; x <= (int) (cameraX + MarioGame.width) / 16 + 1; x++) {
             for (int y = (int) cameraY / 16 - 1; y <= (int) (cameraY + MarioGame.height) / 16 + 1; y++) {
                 int dir = 0;
@@ -356,13 +801,11 @@ public class MarioWorld {
 
                 SpriteType type = level.getSpriteType(x, y);
                 if (type != SpriteType.NONE) {
-                    String spriteCode = level.getSpriteCode(x, y);
+                    int spriteCode = level.getSpriteCode(x, y);
+                    // only the spawned enemies and the shells they turn into have a sprite code
                     boolean found = false;
-                    for (MarioSprite sprite : sprites) {
-                        if (sprite.initialCode.equals(spriteCode)) {
-                            found = true;
-                            break;
-                        }
+                    for (int i = 0; i < this.targets.size() && !found; i++) {
+                        found = this.targets.get(i).initialCode == spriteCode;
                     }
                     if (!found) {
                         if (this.level.getLastSpawnTick(x, y) != this.currentTick - 1) {
@@ -375,32 +818,72 @@ public class MarioWorld {
                 }
 
                 if (dir != 0) {
-                    ArrayList<TileFeature> features = TileFeature.getTileType(this.level.getBlock(x, y));
-                    if (features.contains(TileFeature.SPAWNER)) {
+                    if (TileFeature.hasFeature(this.level.getBlock(x, y), TileFeature.SPAWNER)) {
                         if (this.currentTick % 100 == 0) {
-                            addSprite(new BulletBill(this.visuals, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
+                            addSprite(BulletBill.obtain(this.visuals, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
                         }
                     }
                 }
             }
         }
+        MarioMetrics.stop(MetricType.SPAWN, metricsStart);
 
-        this.mario.actions = actions;
-        for (MarioSprite sprite : sprites) {
-            if (!sprite.alive) {
-                continue;
+        metricsStart = MarioMetrics.start();
+        this.mario.setActions(actions);
+        if (this.shells.size() == 0) {
+            // only a shell can change other sprites while it is updated, by bumping a block, so without
+            // shells every type is updated in its own loop with the same result as the order of the sprites,
+            // and every call site only sees the classes of one type
+            for (int i = 0; i < this.enemies.size(); i++) {
+                MarioSprite sprite = this.enemies.get(i);
+                if (sprite.alive) {
+                    MarioMetrics.countSpriteUpdate(sprite.type);
+                    sprite.update();
+                }
+            }
+            for (int i = 0; i < this.fireballs.size(); i++) {
+                MarioSprite sprite = this.fireballs.get(i);
+                if (sprite.alive) {
+                    MarioMetrics.countSpriteUpdate(sprite.type);
+                    sprite.update();
+                }
+            }
+            for (int i = 0; i < this.items.size(); i++) {
+                MarioSprite sprite = this.items.get(i);
+                if (sprite.alive) {
+                    MarioMetrics.countSpriteUpdate(sprite.type);
+                    sprite.update();
+                }
+            }
+            if (this.mario.alive) {
+                MarioMetrics.countSpriteUpdate(this.mario.type);
+                this.mario.update();
+            }
+        } else {
+            for (int i = 0; i < this.sprites.size(); i++) {
+                MarioSprite sprite = this.sprites.get(i);
+                if (!sprite.alive) {
+                    continue;
+                }
+                MarioMetrics.countSpriteUpdate(sprite.type);
+                sprite.update();
             }
-            sprite.update();
         }
-        for (MarioSprite sprite : sprites) {
+        MarioMetrics.stop(MetricType.SPRITE_UPDATE, metricsStart);
+
+        metricsStart = MarioMetrics.start();
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (!sprite.alive) {
                 continue;
             }
             sprite.collideCheck();
         }
 
-        for (Shell shell : shellsToCheck) {
-            for (MarioSprite sprite : sprites) {
+        for (int j = 0; j < shellsToCheck.size(); j++) {
+            Shell shell = shellsToCheck.get(j);
+            for (int i = 0; i < this.targets.size(); i++) {
+                MarioSprite sprite = this.targets.get(i);
                 if (sprite != shell && shell.alive && sprite.alive) {
                     if (sprite.shellCollideCheck(shell)) {
                         this.removeSprite(sprite);
@@ -410,12 +893,14 @@ public class MarioWorld {
         }
         shellsToCheck.clear();
 
-        for (Fireball fireball : fireballsToCheck) {
-            for (MarioSprite sprite : sprites) {
+        for (int j = 0; j < fireballsToCheck.size(); j++) {
+            Fireball fireball = fireballsToCheck.get(j);
+            for (int i = 0; i < this.targets.size(); i++) {
+                MarioSprite sprite = this.targets.get(i);
                 if (sprite != fireball && fireball.alive && sprite.alive) {
                     if (sprite.fireballCollideCheck(fireball)) {
                         if (this.visuals) {
-                            this.addEffect(new FireballEffect(fireball.x, fireball.y));
+                            this.addEffect(FireballEffect.obtain(fireball.x, fireball.y));
                         }
                         this.removeSprite(fireball);
                     }
@@ -423,49 +908,85 @@ public class MarioWorld {
             }
         }
         fireballsToCheck.clear();
+        MarioMetrics.stop(MetricType.COLLISION, metricsStart);
 
-        sprites.addAll(0, addedSprites);
-        sprites.removeAll(removedSprites);
+        // the added sprites go in front of the old ones in the same order, the partitions keep the same order
+        for (int i = addedSprites.size() - 1; i >= 0; i--) {
+            MarioSprite sprite = addedSprites.get(i);
+            sprites.addFirst(sprite);
+            this.addToPartitions(sprite);
+        }
+        if (!removedSprites.isEmpty()) {
+            sprites.compact();
+            this.compactPartitions();
+            // a sprite can be removed more than once in a tick but it is only released once, mario is kept
+            // because the world still uses it after it is removed, agents and the renderer may still hold
+            // sprites of the game world so only clones give them back to the pool
+            MarioPool pool = MarioPool.get();
+            for (int i = 0; i < removedSprites.size(); i++) {
+                MarioSprite sprite = removedSprites.get(i);
+                if (sprite.removed) {
+                    sprite.removed = false;
+                    if (this.pooled && sprite != this.mario) {
+                        pool.release(sprite);
+                    }
+                }
+            }
+        }
         addedSprites.clear();
         removedSprites.clear();
 
         //punishing forward model
-        if (this.killEvents != null) {
-            for (MarioEvent k : this.killEvents) {
-                if (this.lastFrameEvents.contains(k)) {
+        // each lose adds an event that can match the kill events after it
+        if (this.killMatched) {
+            for (int i = 0; i < this.killConditions.size(); i++) {
+                if (this.killConditions.isMatched(i, this.killMatches)) {
                     this.lose();
                 }
             }
         }
+        if (MarioMetrics.ENABLED && !this.pooled) {
+            this.countLiveSprites();
+        }
+    }
+
+    private void countLiveSprites() {
+        if (this.liveSprites == null) {
+            this.liveSprites = new int[SpriteType.values().length];
+        }
+        Arrays.fill(this.liveSprites, 0);
+        for (int i = 0; i < this.sprites.size(); i++) {
+            this.liveSprites[this.sprites.get(i).type.ordinal()] += 1;
+        }
+        MarioMetrics.setLiveSprites(this.liveSprites);
     }
 
     public void bump(int xTile, int yTile, boolean canBreakBricks) {
         int block = this.level.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
 
-        if (features.contains(TileFeature.BUMPABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.BUMPABLE)) {
             bumpInto(xTile, yTile - 1);
             this.addEvent(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
             level.setBlock(xTile, yTile, 14);
             level.setShiftIndex(xTile, yTile, 4);
 
-            if (features.contains(TileFeature.SPECIAL)) {
+            if (TileFeature.hasFeature(block, TileFeature.SPECIAL)) {
                 if (!this.mario.isLarge) {
-                    addSprite(new Mushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
+                    addSprite(Mushroom.obtain(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 } else {
-                    addSprite(new FireFlower(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
+                    addSprite(FireFlower.obtain(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 }
-            } else if (features.contains(TileFeature.LIFE)) {
-                addSprite(new LifeMushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
+            } else if (TileFeature.hasFeature(block, TileFeature.LIFE)) {
+                addSprite(LifeMushroom.obtain(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
             } else {
                 mario.collectCoin();
                 if (this.visuals) {
-                    this.addEffect(new CoinEffect(xTile * 16 + 8, (yTile) * 16));
+                    this.addEffect(CoinEffect.obtain(xTile * 16 + 8, (yTile) * 16));
                 }
             }
         }
 
-        if (features.contains(TileFeature.BREAKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.BREAKABLE)) {
             bumpInto(xTile, yTile - 1);
             if (canBreakBricks) {
                 this.addEvent(EventType.BUMP, MarioForwardModel.OBS_BRICK);
@@ -473,7 +994,7 @@ public class MarioWorld {
                 if (this.visuals) {
                     for (int xx = 0; xx < 2; xx++) {
                         for (int yy = 0; yy < 2; yy++) {
-                            this.addEffect(new BrickEffect(xTile * 16 + xx * 8 + 4, yTile * 16 + yy * 8 + 4,
+                            this.addEffect(BrickEffect.obtain(xTile * 16 + xx * 8 + 4, yTile * 16 + yy * 8 + 4,
                                     (xx * 2 - 1) * 4, (yy * 2 - 1) * 4 - 8));
                         }
                     }
@@ -486,44 +1007,75 @@ public class MarioWorld {
 
     public void bumpInto(int xTile, int yTile) {
         int block = level.getBlock(xTile, yTile);
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.addEvent(EventType.COLLECT, block);
             this.mario.collectCoin();
             level.setBlock(xTile, yTile, 0);
             if (this.visuals) {
-                this.addEffect(new CoinEffect(xTile * 16 + 8, yTile * 16 + 8));
+                this.addEffect(CoinEffect.obtain(xTile * 16 + 8, yTile * 16 + 8));
             }
         }
 
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             sprite.bumpCheck(xTile, yTile);
         }
     }
 
     public void render(Graphics og) {
+        // a recorded frame is interpolated on the render thread, it needs to know which sprite drew what
+        MarioRenderSnapshot snapshot = og instanceof MarioRenderSnapshot ? (MarioRenderSnapshot) og : null;
+        if (snapshot != null) {
+            snapshot.setWorldSpace(true);
+        }
         for (int i = 0; i < backgrounds.length; i++) {
             this.backgrounds[i].render(og, (int) cameraX, (int) cameraY);
         }
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type == SpriteType.MUSHROOM || sprite.type == SpriteType.LIFE_MUSHROOM ||
                     sprite.type == SpriteType.FIRE_FLOWER || sprite.type == SpriteType.ENEMY_FLOWER) {
+                if (snapshot != null) {
+                    snapshot.setKey(sprite);
+                }
                 sprite.render(og);
             }
         }
+        if (snapshot != null) {
+            snapshot.setKey(null);
+        }
         this.level.render(og, (int) cameraX, (int) cameraY);
-        for (MarioSprite sprite : sprites) {
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
             if (sprite.type != SpriteType.MUSHROOM && sprite.type != SpriteType.LIFE_MUSHROOM &&
                     sprite.type != SpriteType.FIRE_FLOWER && sprite.type != SpriteType.ENEMY_FLOWER) {
+                if (snapshot != null) {
+                    snapshot.setKey(sprite);
+                }
                 sprite.render(og);
             }
         }
+        // finished effects are dropped in the same pass
+        int liveEffects = 0;
         for (int i = 0; i < this.effects.size(); i++) {
-            if (this.effects.get(i).life <= 0) {
-                this.effects.remove(i);
-                i--;
+            MarioEffect effect = this.effects.get(i);
+            if (effect.life <= 0) {
+                if (this.pooled) {
+                    MarioPool.get().release(effect);
+                }
                 continue;
             }
-            this.effects.get(i).render(og, cameraX, cameraY);
+            if (snapshot != null) {
+                snapshot.setKey(effect);
+            }
+            effect.render(og, cameraX, cameraY);
+            this.effects.set(liveEffects, effect);
+            liveEffects += 1;
+        }
+        this.effects.subList(liveEffects, this.effects.size()).clear();
+        if (snapshot != null) {
+            snapshot.setKey(null);
+            snapshot.setWorldSpace(false);
         }
     }
 }
@@ -3,11 +3,25 @@ package engine.effects;
 import java.awt.Graphics;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class BrickEffect extends MarioEffect {
 
     public BrickEffect(float x, float y, float xv, float yv) {
-        super(x, y, xv, yv, 0, 3, 16, 10);
+        this.initialize(x, y, xv, yv);
+    }
+
+    public static BrickEffect obtain(float x, float y, float xv, float yv) {
+        BrickEffect effect = MarioPool.get().obtain(BrickEffect.class);
+        if (effect == null) {
+            return new BrickEffect(x, y, xv, yv);
+        }
+        effect.initialize(x, y, xv, yv);
+        return effect;
+    }
+
+    private void initialize(float x, float y, float xv, float yv) {
+        this.reset(x, y, xv, yv, 0, 3, 16, 10);
     }
 
     @Override
@@ -3,10 +3,24 @@ package engine.effects;
 import java.awt.Graphics;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class CoinEffect extends MarioEffect {
     public CoinEffect(float x, float y) {
-        super(x, y, 0, -8f, 0, 1, 0, 16);
+        this.initialize(x, y);
+    }
+
+    public static CoinEffect obtain(float x, float y) {
+        CoinEffect effect = MarioPool.get().obtain(CoinEffect.class);
+        if (effect == null) {
+            return new CoinEffect(x, y);
+        }
+        effect.initialize(x, y);
+        return effect;
+    }
+
+    private void initialize(float x, float y) {
+        this.reset(x, y, 0, -8f, 0, 1, 0, 16);
     }
 
     @Override
@@ -1,10 +1,24 @@
 package engine.effects;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class DeathEffect extends MarioEffect {
     public DeathEffect(float x, float y, boolean flipX, int startIndex, float yv) {
-        super(x, y, 0, yv, 0, 1f, startIndex, 30);
+        this.initialize(x, y, flipX, startIndex, yv);
+    }
+
+    public static DeathEffect obtain(float x, float y, boolean flipX, int startIndex, float yv) {
+        DeathEffect effect = MarioPool.get().obtain(DeathEffect.class);
+        if (effect == null) {
+            return new DeathEffect(x, y, flipX, startIndex, yv);
+        }
+        effect.initialize(x, y, flipX, startIndex, yv);
+        return effect;
+    }
+
+    private void initialize(float x, float y, boolean flipX, int startIndex, float yv) {
+        this.reset(x, y, 0, yv, 0, 1f, startIndex, 30);
         this.graphics.flipX = flipX;
     }
 }
@@ -3,10 +3,24 @@ package engine.effects;
 import java.awt.Graphics;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class DustEffect extends MarioEffect {
     public DustEffect(float x, float y) {
-        super(x, y, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 0, 8 + (int) (Math.random() * 2), 10 + (int) (Math.random() * 5));
+        this.initialize(x, y);
+    }
+
+    public static DustEffect obtain(float x, float y) {
+        DustEffect effect = MarioPool.get().obtain(DustEffect.class);
+        if (effect == null) {
+            return new DustEffect(x, y);
+        }
+        effect.initialize(x, y);
+        return effect;
+    }
+
+    private void initialize(float x, float y) {
+        this.reset(x, y, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 0, 8 + (int) (Math.random() * 2), 10 + (int) (Math.random() * 5));
     }
 
     @Override
@@ -3,10 +3,24 @@ package engine.effects;
 import java.awt.Graphics;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class FireballEffect extends MarioEffect {
     public FireballEffect(float x, float y) {
-        super(x, y, 0, 0, 0, 0, 32, 8);
+        this.initialize(x, y);
+    }
+
+    public static FireballEffect obtain(float x, float y) {
+        FireballEffect effect = MarioPool.get().obtain(FireballEffect.class);
+        if (effect == null) {
+            return new FireballEffect(x, y);
+        }
+        effect.initialize(x, y);
+        return effect;
+    }
+
+    private void initialize(float x, float y) {
+        this.reset(x, y, 0, 0, 0, 0, 32, 8);
     }
 
     @Override
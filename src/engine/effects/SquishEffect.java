@@ -1,9 +1,23 @@
 package engine.effects;
 
 import engine.core.MarioEffect;
+import engine.core.MarioPool;
 
 public class SquishEffect extends MarioEffect {
     public SquishEffect(float x, float y) {
-        super(x, y, 0, 0, 0, 0, 40, 8);
+        this.initialize(x, y);
+    }
+
+    public static SquishEffect obtain(float x, float y) {
+        SquishEffect effect = MarioPool.get().obtain(SquishEffect.class);
+        if (effect == null) {
+            return new SquishEffect(x, y);
+        }
+        effect.initialize(x, y);
+        return effect;
+    }
+
+    private void initialize(float x, float y) {
+        this.reset(x, y, 0, 0, 0, 0, 40, 8);
     }
 }
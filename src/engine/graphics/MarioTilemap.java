@@ -1,19 +1,45 @@
 package engine.graphics;
 
+import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 import engine.core.MarioGame;
+import engine.core.MarioRenderSnapshot;
 import engine.helper.TileFeature;
 
+/**
+ * Draws the level tiles. The tiles that don't change are kept in a cached strip of tile columns that
+ * scrolls with the camera and is drawn with one image copy, a tile of the strip is only drawn again when
+ * it scrolls in or its index changes. Animated tiles and bumped tiles are drawn on top of the strip every
+ * frame. A frame recorded into a MarioRenderSnapshot gets every tile drawn on its own instead, it is drawn
+ * later while the strip already changed.
+ */
 public class MarioTilemap extends MarioGraphics {
+    // tile columns of the strip, more than the columns render visits
+    private static final int CACHE_COLUMNS = MarioGame.width / 16 + 4;
+    // cached index of a strip tile that has to be drawn again
+    private static final int INVALID = -2;
+    // cached index of a strip tile that is left empty because it is drawn every frame
+    private static final int DYNAMIC = -1;
+    private static final Color EMPTY = new Color(0, 0, 0, 0);
+
     public Image[][] sheet;
     public int[][] currentIndeces;
     public int[][] indexShift;
     public float[][] moveShift;
     public int animationIndex;
 
+    private BufferedImage cache;
+    private Graphics2D cacheGraphics;
+    // the level column and the tile indices drawn in every strip column
+    private int[] cacheColumns;
+    private int[][] cacheIndices;
+
     public MarioTilemap(Image[][] sheet, int[][] currentIndeces) {
         this.sheet = sheet;
         this.currentIndeces = currentIndeces;
@@ -22,38 +48,121 @@ public class MarioTilemap extends MarioGraphics {
         this.animationIndex = 0;
     }
 
+    private void createCache() {
+        int tileHeight = this.currentIndeces[0].length;
+        this.cache = new BufferedImage(CACHE_COLUMNS * 16, tileHeight * 16, BufferedImage.TYPE_INT_ARGB);
+        this.cacheGraphics = this.cache.createGraphics();
+        // the tiles replace the cached pixels with their transparency
+        this.cacheGraphics.setComposite(AlphaComposite.Src);
+        this.cacheGraphics.setColor(EMPTY);
+        this.cacheColumns = new int[CACHE_COLUMNS];
+        Arrays.fill(this.cacheColumns, -1);
+        this.cacheIndices = new int[CACHE_COLUMNS][tileHeight];
+    }
+
+    /**
+     * Make sure a strip tile shows the tile it should
+     *
+     * @param column the strip column
+     * @param yTile  the tile row
+     * @param index  the tile index that is cached, DYNAMIC to leave the tile empty
+     */
+    private void updateCache(int column, int yTile, int index) {
+        if (this.cacheIndices[column][yTile] == index) {
+            return;
+        }
+        this.cacheIndices[column][yTile] = index;
+        if (index == DYNAMIC) {
+            this.cacheGraphics.fillRect(column * 16, yTile * 16, 16, 16);
+        } else {
+            this.cacheGraphics.drawImage(this.sheet[index % 8][index / 8], column * 16, yTile * 16, null);
+        }
+    }
+
+    /**
+     * Copy the visible rows of a run of neighbouring strip columns to the screen
+     */
+    private void drawCache(Graphics og, int xTile, int column, int columns, int yMin, int yMax, int x, int y) {
+        int sx = column * 16;
+        int dx = xTile * 16 - x;
+        int width = columns * 16;
+        int sy = yMin * 16;
+        int height = (yMax - yMin + 1) * 16;
+        og.drawImage(this.cache, dx, sy - y, dx + width, sy - y + height, sx, sy, sx + width, sy + height, null);
+    }
+
+    private void drawTile(Graphics og, int xTile, int yTile, int x, int y) {
+        int index = currentIndeces[xTile][yTile] + indexShift[xTile][yTile];
+        int move = (int) moveShift[xTile][yTile];
+        Image img = sheet[index % 8][index / 8];
+        og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
+    }
+
     @Override
     public void render(Graphics og, int x, int y) {
         this.animationIndex = (this.animationIndex + 1) % 5;
+        boolean cached = !(og instanceof MarioRenderSnapshot);
+        if (cached && this.cache == null) {
+            this.createCache();
+        }
 
-        int xMin = (x / 16) - 1;
-        int yMin = (y / 16) - 1;
-        int xMax = (x + MarioGame.width) / 16 + 1;
-        int yMax = (y + MarioGame.height) / 16 + 1;
+        int xMin = Math.max((x / 16) - 1, 0);
+        int yMin = Math.max((y / 16) - 1, 0);
+        int xMax = Math.min((x + MarioGame.width) / 16 + 1, currentIndeces.length - 1);
+        int yMax = Math.min((y + MarioGame.height) / 16 + 1, currentIndeces[0].length - 1);
+        if (xMin > xMax || yMin > yMax) {
+            return;
+        }
 
         for (int xTile = xMin; xTile <= xMax; xTile++) {
+            int column = xTile % CACHE_COLUMNS;
+            if (cached && this.cacheColumns[column] != xTile) {
+                this.cacheColumns[column] = xTile;
+                Arrays.fill(this.cacheIndices[column], INVALID);
+            }
             for (int yTile = yMin; yTile <= yMax; yTile++) {
-                if (xTile < 0 || yTile < 0 || xTile >= currentIndeces.length || yTile >= currentIndeces[0].length) {
-                    continue;
-                }
                 if (this.moveShift[xTile][yTile] > 0) {
                     this.moveShift[xTile][yTile] -= 1;
                     if (this.moveShift[xTile][yTile] < 0) {
                         this.moveShift[xTile][yTile] = 0;
                     }
                 }
-                ArrayList<TileFeature> features = TileFeature.getTileType(this.currentIndeces[xTile][yTile]);
-                if (features.contains(TileFeature.ANIMATED)) {
+                boolean animated = TileFeature.hasFeature(this.currentIndeces[xTile][yTile], TileFeature.ANIMATED);
+                if (animated) {
                     if (this.animationIndex == 0) {
                         this.indexShift[xTile][yTile] = (this.indexShift[xTile][yTile] + 1) % 3;
                     }
                 } else {
                     this.indexShift[xTile][yTile] = 0;
                 }
-                int index = currentIndeces[xTile][yTile] + indexShift[xTile][yTile];
-                int move = (int) moveShift[xTile][yTile];
-                Image img = sheet[index % 8][index / 8];
-                og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
+                if (!cached) {
+                    this.drawTile(og, xTile, yTile, x, y);
+                    continue;
+                }
+                boolean dynamic = animated || (int) this.moveShift[xTile][yTile] != 0;
+                this.updateCache(column, yTile, dynamic ? DYNAMIC : this.currentIndeces[xTile][yTile]);
+            }
+        }
+        if (!cached) {
+            return;
+        }
+
+        // the strip columns of the visible tiles wrap around the end of the strip at most once
+        int start = xMin;
+        for (int xTile = xMin + 1; xTile <= xMax + 1; xTile++) {
+            if (xTile > xMax || xTile % CACHE_COLUMNS == 0) {
+                this.drawCache(og, start, start % CACHE_COLUMNS, xTile - start, yMin, yMax, x, y);
+                start = xTile;
+            }
+        }
+
+        for (int xTile = xMin; xTile <= xMax; xTile++) {
+            int column = xTile % CACHE_COLUMNS;
+            for (int yTile = yMin; yTile <= yMax; yTile++) {
+                if (this.cacheIndices[column][yTile] != DYNAMIC) {
+                    continue;
+                }
+                this.drawTile(og, xTile, yTile, x, y);
             }
         }
     }
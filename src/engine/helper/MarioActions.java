@@ -19,6 +19,15 @@ public enum MarioActions {
         return value;
     }
 
+    /**
+     * Get the bit of this button in an action mask
+     *
+     * @return the mask with only this button pressed
+     */
+    public int getMask() {
+        return 1 << value;
+    }
+
     public String getString() {
         return name;
     }
@@ -30,4 +39,45 @@ public enum MarioActions {
     public static MarioActions getAction(int value) {
         return MarioActions.values()[value];
     }
+
+    /**
+     * Get the number of different action masks
+     *
+     * @return the number of button combinations
+     */
+    public static int numberOfMasks() {
+        return 1 << numberOfActions();
+    }
+
+    /**
+     * Convert a button array to an action mask
+     *
+     * @param actions the state of the buttons, null means no button is pressed
+     * @return a mask where the bit of every pressed button is set
+     */
+    public static int toMask(boolean[] actions) {
+        int mask = 0;
+        if (actions != null) {
+            for (int i = 0; i < actions.length; i++) {
+                if (actions[i]) {
+                    mask |= 1 << i;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Convert an action mask to a new button array
+     *
+     * @param mask the action mask
+     * @return a new array with the state of every button
+     */
+    public static boolean[] fromMask(int mask) {
+        boolean[] actions = new boolean[numberOfActions()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = ((mask >> i) & 1) == 1;
+        }
+        return actions;
+    }
 }
@@ -0,0 +1,21 @@
+package engine.helper;
+
+public enum MetricType {
+    SPRITE_UPDATE("sprite_update"),
+    COLLISION("collision"),
+    SPAWN("spawn"),
+    LEVEL_UPDATE("level_update"),
+    OBSERVATION("observation"),
+    CLONE("clone"),
+    RENDER("render");
+
+    private String name;
+
+    MetricType(String newName) {
+        name = newName;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,39 @@
+package engine.helper;
+
+/**
+ * How much an agent step went over its budget: MINOR up to 1.25 times the budget (the grace time of the
+ * normal 40 ms budget), MAJOR up to 2 times the budget and SEVERE above that
+ */
+public enum OverrunSeverity {
+    MINOR(1.25),
+    MAJOR(2),
+    SEVERE(Double.POSITIVE_INFINITY);
+
+    private double maxUsage;
+
+    OverrunSeverity(double newMaxUsage) {
+        maxUsage = newMaxUsage;
+    }
+
+    public double getMaxUsage() {
+        return maxUsage;
+    }
+
+    /**
+     * Get the severity of a budget usage
+     *
+     * @param usage the spent budget divided by the budget (see MarioTimer.getBudgetUsage)
+     * @return the severity, or null if the budget was not exceeded
+     */
+    public static OverrunSeverity getSeverity(double usage) {
+        if (usage <= 1) {
+            return null;
+        }
+        for (OverrunSeverity severity : OverrunSeverity.values()) {
+            if (usage <= severity.maxUsage) {
+                return severity;
+            }
+        }
+        return SEVERE;
+    }
+}
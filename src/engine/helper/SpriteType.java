@@ -45,10 +45,33 @@ public enum SpriteType {
         return startIndex;
     }
 
+    /**
+     * Check if the sprites of this type are enemies (Enemy, FlowerEnemy and BulletBill)
+     *
+     * @return true for the enemy types
+     */
+    public boolean isEnemy() {
+        switch (this) {
+            case GOOMBA:
+            case GOOMBA_WINGED:
+            case RED_KOOPA:
+            case RED_KOOPA_WINGED:
+            case GREEN_KOOPA:
+            case GREEN_KOOPA_WINGED:
+            case SPIKY:
+            case SPIKY_WINGED:
+            case BULLET_BILL:
+            case ENEMY_FLOWER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     public MarioSprite spawnSprite(boolean visuals, int xTile, int yTile, int dir) {
         if (this == SpriteType.ENEMY_FLOWER) {
-            return new FlowerEnemy(visuals, xTile * 16 + 17, yTile * 16 + 18);
+            return FlowerEnemy.obtain(visuals, xTile * 16 + 17, yTile * 16 + 18);
         }
-        return new Enemy(visuals, xTile * 16 + 8, yTile * 16 + 15, dir, this);
+        return Enemy.obtain(visuals, xTile * 16 + 8, yTile * 16 + 15, dir, this);
     }
 }
@@ -14,6 +14,31 @@ public enum TileFeature {
     ANIMATED,
     SPAWNER;
 
+    // the features of the tile indices that fit in the table, feature f is set if (mask >> f.ordinal()) & 1 is 1
+    private static final int[] featureMasks = new int[256];
+
+    static {
+        for (int index = 0; index < featureMasks.length; index++) {
+            for (TileFeature feature : getTileType(index)) {
+                featureMasks[index] |= 1 << feature.ordinal();
+            }
+        }
+    }
+
+    /**
+     * Check if a tile has a feature without creating the feature list
+     *
+     * @param index   the tile index
+     * @param feature the feature to check
+     * @return true if getTileType(index) contains the feature
+     */
+    public static boolean hasFeature(int index, TileFeature feature) {
+        if (index >= 0 && index < featureMasks.length) {
+            return ((featureMasks[index] >> feature.ordinal()) & 1) == 1;
+        }
+        return getTileType(index).contains(feature);
+    }
+
     public static ArrayList<TileFeature> getTileType(int index) {
         ArrayList<TileFeature> features = new ArrayList<>();
         switch (index) {
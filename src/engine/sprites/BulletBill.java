@@ -2,6 +2,7 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
 import engine.effects.DeathEffect;
 import engine.graphics.MarioImage;
@@ -14,6 +15,21 @@ public class BulletBill extends MarioSprite {
 
     public BulletBill(boolean visuals, float x, float y, int dir) {
         super(x, y, SpriteType.BULLET_BILL);
+        this.initialize(visuals, dir);
+    }
+
+    public static BulletBill obtain(boolean visuals, float x, float y, int dir) {
+        BulletBill sprite = MarioPool.get().obtain(BulletBill.class);
+        if (sprite == null) {
+            return new BulletBill(visuals, x, y, dir);
+        }
+        sprite.reset(x, y, SpriteType.BULLET_BILL);
+        sprite.initialize(visuals, dir);
+        return sprite;
+    }
+
+    private void initialize(boolean visuals, int dir) {
+        this.graphics = null;
         this.width = 4;
         this.height = 12;
         this.ya = -5;
@@ -29,7 +45,7 @@ public class BulletBill extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        BulletBill sprite = new BulletBill(false, x, y, this.facing);
+        BulletBill sprite = BulletBill.obtain(false, x, y, this.facing);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.width = this.width;
@@ -70,7 +86,7 @@ public class BulletBill extends MarioSprite {
                 if (world.mario.ya > 0 && yMarioD <= 0 && (!world.mario.onGround || !world.mario.wasOnGround)) {
                     world.mario.stomp(this);
                     if (this.graphics != null) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y - 7, this.graphics.flipX, 43, 0));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y - 7, this.graphics.flipX, 43, 0));
                     }
                     this.world.removeSprite(this);
                 } else {
@@ -111,7 +127,7 @@ public class BulletBill extends MarioSprite {
         if (xD > -16 && xD < 16) {
             if (yD > -height && yD < shell.height) {
                 if (this.graphics != null) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y - 7, this.graphics.flipX, 43, -1));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y - 7, this.graphics.flipX, 43, -1));
                 }
                 this.world.addEvent(EventType.SHELL_KILL, this.type.getValue());
                 this.world.removeSprite(this);
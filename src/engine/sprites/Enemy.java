@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.effects.DeathEffect;
 import engine.effects.SquishEffect;
 import engine.graphics.MarioImage;
@@ -26,6 +28,25 @@ public class Enemy extends MarioSprite {
 
     public Enemy(boolean visuals, float x, float y, int dir, SpriteType type) {
         super(x, y, type);
+        this.initialize(visuals, dir);
+    }
+
+    public static Enemy obtain(boolean visuals, float x, float y, int dir, SpriteType type) {
+        Enemy sprite = MarioPool.get().obtain(Enemy.class);
+        if (sprite == null) {
+            return new Enemy(visuals, x, y, dir, type);
+        }
+        sprite.reset(x, y, type);
+        sprite.initialize(visuals, dir);
+        return sprite;
+    }
+
+    protected void initialize(boolean visuals, int dir) {
+        this.onGround = false;
+        this.runTime = 0;
+        this.wingTime = 0;
+        this.graphics = null;
+        this.wingGraphics = null;
         this.width = 4;
         this.height = 24;
         if (this.type != SpriteType.RED_KOOPA && this.type != SpriteType.GREEN_KOOPA
@@ -55,7 +76,7 @@ public class Enemy extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Enemy e = new Enemy(false, this.x, this.y, this.facing, this.type);
+        Enemy e = Enemy.obtain(false, this.x, this.y, this.facing, this.type);
         e.xa = this.xa;
         e.ya = this.ya;
         e.initialCode = this.initialCode;
@@ -68,6 +89,15 @@ public class Enemy extends MarioSprite {
         return e;
     }
 
+    @Override
+    public long getStateHash() {
+        long hash = super.getStateHash();
+        hash = MarioStateHash.combine(hash, this.onGround);
+        hash = MarioStateHash.combine(hash, this.avoidCliffs);
+        hash = MarioStateHash.combine(hash, this.winged);
+        return MarioStateHash.combine(hash, this.noFireballDeath);
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -85,12 +115,12 @@ public class Enemy extends MarioSprite {
                         ya = 0;
                     } else {
                         if (type == SpriteType.GREEN_KOOPA || type == SpriteType.GREEN_KOOPA_WINGED) {
-                            this.world.addSprite(new Shell(this.graphics != null, x, y, 1, this.initialCode));
+                            this.world.addSprite(Shell.obtain(this.graphics != null, x, y, 1, this.initialCode));
                         } else if (type == SpriteType.RED_KOOPA || type == SpriteType.RED_KOOPA_WINGED) {
-                            this.world.addSprite(new Shell(this.graphics != null, x, y, 0, this.initialCode));
+                            this.world.addSprite(Shell.obtain(this.graphics != null, x, y, 0, this.initialCode));
                         } else if (type == SpriteType.GOOMBA || type == SpriteType.GOOMBA_WINGED) {
                             if (this.graphics != null) {
-                                this.world.addEffect(new SquishEffect(this.x, this.y - 7));
+                                this.world.addEffect(SquishEffect.obtain(this.x, this.y - 7));
                             }
                         }
                         this.world.addEvent(EventType.STOMP_KILL, this.type.getValue());
@@ -283,13 +313,13 @@ public class Enemy extends MarioSprite {
                 this.world.addEvent(EventType.SHELL_KILL, this.type.getValue());
                 if (this.graphics != null) {
                     if (this.type == SpriteType.GREEN_KOOPA || this.type == SpriteType.GREEN_KOOPA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 42, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 42, -5));
                     } else if (this.type == SpriteType.RED_KOOPA || this.type == SpriteType.RED_KOOPA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 41, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 41, -5));
                     } else if (this.type == SpriteType.GOOMBA || this.type == SpriteType.GOOMBA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 44, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 44, -5));
                     } else if (this.type == SpriteType.SPIKY || this.type == SpriteType.SPIKY_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 45, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 45, -5));
                     }
                 }
                 this.world.removeSprite(this);
@@ -317,11 +347,11 @@ public class Enemy extends MarioSprite {
                 this.world.addEvent(EventType.FIRE_KILL, this.type.getValue());
                 if (this.graphics != null) {
                     if (this.type == SpriteType.GREEN_KOOPA || this.type == SpriteType.GREEN_KOOPA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 42, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 42, -5));
                     } else if (this.type == SpriteType.RED_KOOPA || this.type == SpriteType.RED_KOOPA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 41, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 41, -5));
                     } else if (this.type == SpriteType.GOOMBA || this.type == SpriteType.GOOMBA_WINGED) {
-                        this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 44, -5));
+                        this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 44, -5));
                     }
                 }
                 this.world.removeSprite(this);
@@ -341,13 +371,13 @@ public class Enemy extends MarioSprite {
             ya = -5;
             if (this.graphics != null) {
                 if (this.type == SpriteType.GREEN_KOOPA || this.type == SpriteType.GREEN_KOOPA_WINGED) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 42, -5));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 42, -5));
                 } else if (this.type == SpriteType.RED_KOOPA || this.type == SpriteType.RED_KOOPA_WINGED) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 41, -5));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 41, -5));
                 } else if (this.type == SpriteType.GOOMBA || this.type == SpriteType.GOOMBA_WINGED) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 44, -5));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 44, -5));
                 } else if (this.type == SpriteType.SPIKY || this.type == SpriteType.SPIKY_WINGED) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 45, -5));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 45, -5));
                 }
             }
             this.world.removeSprite(this);
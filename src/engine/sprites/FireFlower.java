@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -14,6 +16,21 @@ public class FireFlower extends MarioSprite {
 
     public FireFlower(boolean visuals, float x, float y) {
         super(x, y, SpriteType.FIRE_FLOWER);
+        this.initialize(visuals);
+    }
+
+    public static FireFlower obtain(boolean visuals, float x, float y) {
+        FireFlower sprite = MarioPool.get().obtain(FireFlower.class);
+        if (sprite == null) {
+            return new FireFlower(visuals, x, y);
+        }
+        sprite.reset(x, y, SpriteType.FIRE_FLOWER);
+        sprite.initialize(visuals);
+        return sprite;
+    }
+
+    private void initialize(boolean visuals) {
+        this.graphics = null;
         this.width = 4;
         this.height = 12;
         this.facing = 1;
@@ -29,7 +46,7 @@ public class FireFlower extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        FireFlower f = new FireFlower(false, x, y);
+        FireFlower f = FireFlower.obtain(false, x, y);
         f.xa = this.xa;
         f.ya = this.ya;
         f.initialCode = this.initialCode;
@@ -40,6 +57,11 @@ public class FireFlower extends MarioSprite {
         return f;
     }
 
+    @Override
+    public long getStateHash() {
+        return MarioStateHash.combine(super.getStateHash(), this.life);
+    }
+
     @Override
     public void collideCheck() {
         if (!this.alive) {
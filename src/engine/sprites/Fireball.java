@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.SpriteType;
@@ -18,6 +20,23 @@ public class Fireball extends MarioSprite {
 
     public Fireball(boolean visuals, float x, float y, int facing) {
         super(x, y, SpriteType.FIREBALL);
+        this.initialize(visuals, facing);
+    }
+
+    public static Fireball obtain(boolean visuals, float x, float y, int facing) {
+        Fireball fireball = MarioPool.get().obtain(Fireball.class);
+        if (fireball == null) {
+            return new Fireball(visuals, x, y, facing);
+        }
+        fireball.reset(x, y, SpriteType.FIREBALL);
+        fireball.initialize(visuals, facing);
+        return fireball;
+    }
+
+    private void initialize(boolean visuals, int facing) {
+        this.onGround = false;
+        this.anim = 0;
+        this.graphics = null;
         this.facing = facing;
         this.ya = 4;
         this.width = 4;
@@ -34,7 +53,7 @@ public class Fireball extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Fireball f = new Fireball(false, this.x, this.y, this.facing);
+        Fireball f = Fireball.obtain(false, this.x, this.y, this.facing);
         f.xa = this.xa;
         f.ya = this.ya;
         f.initialCode = this.initialCode;
@@ -44,6 +63,11 @@ public class Fireball extends MarioSprite {
         return f;
     }
 
+    @Override
+    public long getStateHash() {
+        return MarioStateHash.combine(super.getStateHash(), this.onGround);
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -1,6 +1,8 @@
 package engine.sprites;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.helper.SpriteType;
 
 public class FlowerEnemy extends Enemy {
@@ -9,6 +11,23 @@ public class FlowerEnemy extends Enemy {
 
     public FlowerEnemy(boolean visuals, float x, float y) {
         super(visuals, x, y, 0, SpriteType.ENEMY_FLOWER);
+        this.initializeFlower(visuals);
+    }
+
+    public static FlowerEnemy obtain(boolean visuals, float x, float y) {
+        FlowerEnemy sprite = MarioPool.get().obtain(FlowerEnemy.class);
+        if (sprite == null) {
+            return new FlowerEnemy(visuals, x, y);
+        }
+        sprite.reset(x, y, SpriteType.ENEMY_FLOWER);
+        sprite.initialize(visuals, 0);
+        sprite.initializeFlower(visuals);
+        return sprite;
+    }
+
+    private void initializeFlower(boolean visuals) {
+        this.tick = 0;
+        this.waitTime = 0;
         this.winged = false;
         this.noFireballDeath = false;
         this.width = 2;
@@ -27,7 +46,7 @@ public class FlowerEnemy extends Enemy {
 
     @Override
     public MarioSprite clone() {
-        FlowerEnemy sprite = new FlowerEnemy(false, this.x, this.y);
+        FlowerEnemy sprite = FlowerEnemy.obtain(false, this.x, this.y);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.initialCode = this.initialCode;
@@ -42,6 +61,13 @@ public class FlowerEnemy extends Enemy {
         return sprite;
     }
 
+    @Override
+    public long getStateHash() {
+        long hash = super.getStateHash();
+        hash = MarioStateHash.combine(hash, this.yStart);
+        return MarioStateHash.combine(hash, this.waitTime);
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
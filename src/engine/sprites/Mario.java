@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -16,6 +18,9 @@ public class Mario extends MarioSprite {
     public boolean[] actions = null;
     public int jumpTime = 0;
 
+    // the buttons held for the next update, actions is a copy of it for the readers of the field
+    private int actionMask;
+
     private float xJumpSpeed, yJumpSpeed = 0;
     private int invulnerableTime = 0;
 
@@ -32,6 +37,33 @@ public class Mario extends MarioSprite {
 
     public Mario(boolean visuals, float x, float y) {
         super(x + 8, y + 15, SpriteType.MARIO);
+        this.initialize(visuals);
+    }
+
+    public static Mario obtain(boolean visuals, float x, float y) {
+        Mario sprite = MarioPool.get().obtain(Mario.class);
+        if (sprite == null) {
+            return new Mario(visuals, x, y);
+        }
+        sprite.reset(x + 8, y + 15, SpriteType.MARIO);
+        sprite.initialize(visuals);
+        return sprite;
+    }
+
+    private void initialize(boolean visuals) {
+        this.onGround = false;
+        this.wasOnGround = false;
+        this.isDucking = false;
+        this.canShoot = false;
+        this.mayJump = false;
+        this.setActions(0);
+        this.jumpTime = 0;
+        this.xJumpSpeed = 0;
+        this.yJumpSpeed = 0;
+        this.invulnerableTime = 0;
+        this.marioFrameSpeed = 0;
+        this.graphics = null;
+        this.xJumpStart = -100;
         this.isLarge = this.oldLarge = false;
         this.isFire = this.oldFire = false;
         this.width = 4;
@@ -43,7 +75,7 @@ public class Mario extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Mario sprite = new Mario(false, x - 8, y - 15);
+        Mario sprite = Mario.obtain(false, x - 8, y - 15);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.initialCode = this.initialCode;
@@ -52,15 +84,14 @@ public class Mario extends MarioSprite {
         sprite.facing = this.facing;
         sprite.isLarge = isLarge;
         sprite.isFire = isFire;
+        sprite.oldLarge = oldLarge;
+        sprite.oldFire = oldFire;
         sprite.wasOnGround = wasOnGround;
         sprite.onGround = onGround;
         sprite.isDucking = isDucking;
         sprite.canShoot = canShoot;
         sprite.mayJump = mayJump;
-        sprite.actions = new boolean[this.actions.length];
-        for (int i = 0; i < this.actions.length; i++) {
-            sprite.actions[i] = this.actions[i];
-        }
+        sprite.setActions(this.actionMask);
         sprite.xJumpSpeed = xJumpSpeed;
         sprite.yJumpSpeed = yJumpSpeed;
         sprite.invulnerableTime = invulnerableTime;
@@ -69,6 +100,45 @@ public class Mario extends MarioSprite {
         return sprite;
     }
 
+    /**
+     * Set the buttons held for the next update
+     *
+     * @param actions a mask with the bit of every pressed button set (see MarioActions.getMask)
+     */
+    public void setActions(int actions) {
+        this.actionMask = actions;
+        if (this.actions == null) {
+            this.actions = new boolean[MarioActions.numberOfActions()];
+        }
+        for (int i = 0; i < this.actions.length; i++) {
+            this.actions[i] = ((actions >> i) & 1) == 1;
+        }
+    }
+
+    private boolean isPressed(MarioActions action) {
+        return (this.actionMask & action.getMask()) != 0;
+    }
+
+    @Override
+    public long getStateHash() {
+        long hash = super.getStateHash();
+        hash = MarioStateHash.combine(hash, this.isLarge);
+        hash = MarioStateHash.combine(hash, this.isFire);
+        // the power up animation switches between the old and the new size and the next hit reads them
+        hash = MarioStateHash.combine(hash, this.oldLarge);
+        hash = MarioStateHash.combine(hash, this.oldFire);
+        hash = MarioStateHash.combine(hash, this.onGround);
+        hash = MarioStateHash.combine(hash, this.wasOnGround);
+        hash = MarioStateHash.combine(hash, this.isDucking);
+        hash = MarioStateHash.combine(hash, this.canShoot);
+        hash = MarioStateHash.combine(hash, this.mayJump);
+        hash = MarioStateHash.combine(hash, this.jumpTime);
+        hash = MarioStateHash.combine(hash, this.xJumpSpeed);
+        hash = MarioStateHash.combine(hash, this.yJumpSpeed);
+        hash = MarioStateHash.combine(hash, this.invulnerableTime);
+        return MarioStateHash.combine(hash, this.xJumpStart);
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -161,7 +231,7 @@ public class Mario extends MarioSprite {
         boolean blocking = world.level.isBlocking(xTile, yTile, xa, ya);
         int block = world.level.getBlock(xTile, yTile);
 
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.world.addEvent(EventType.COLLECT, block);
             this.collectCoin();
             world.level.setBlock(xTile, yTile, 0);
@@ -257,10 +327,10 @@ public class Mario extends MarioSprite {
         }
         this.wasOnGround = this.onGround;
 
-        float sideWaysSpeed = actions[MarioActions.SPEED.getValue()] ? 1.2f : 0.6f;
+        float sideWaysSpeed = this.isPressed(MarioActions.SPEED) ? 1.2f : 0.6f;
 
         if (onGround) {
-            isDucking = actions[MarioActions.DOWN.getValue()] && isLarge;
+            isDucking = this.isPressed(MarioActions.DOWN) && isLarge;
         }
 
         if (isLarge) {
@@ -276,7 +346,7 @@ public class Mario extends MarioSprite {
             facing = -1;
         }
 
-        if (actions[MarioActions.JUMP.getValue()] || (jumpTime < 0 && !onGround)) {
+        if (this.isPressed(MarioActions.JUMP) || (jumpTime < 0 && !onGround)) {
             if (jumpTime < 0) {
                 xa = xJumpSpeed;
                 ya = -jumpTime * yJumpSpeed;
@@ -301,25 +371,25 @@ public class Mario extends MarioSprite {
             jumpTime = 0;
         }
 
-        if (actions[MarioActions.LEFT.getValue()] && !isDucking) {
+        if (this.isPressed(MarioActions.LEFT) && !isDucking) {
             xa -= sideWaysSpeed;
             if (jumpTime >= 0)
                 facing = -1;
         }
 
-        if (actions[MarioActions.RIGHT.getValue()] && !isDucking) {
+        if (this.isPressed(MarioActions.RIGHT) && !isDucking) {
             xa += sideWaysSpeed;
             if (jumpTime >= 0)
                 facing = 1;
         }
 
-        if (actions[MarioActions.SPEED.getValue()] && canShoot && isFire && world.fireballsOnScreen < 2) {
-            world.addSprite(new Fireball(this.graphics != null, x + facing * 6, y - 20, facing));
+        if (this.isPressed(MarioActions.SPEED) && canShoot && isFire && world.fireballsOnScreen < 2) {
+            world.addSprite(Fireball.obtain(this.graphics != null, x + facing * 6, y - 20, facing));
         }
 
-        canShoot = !actions[MarioActions.SPEED.getValue()];
+        canShoot = !this.isPressed(MarioActions.SPEED);
 
-        mayJump = onGround && !actions[MarioActions.JUMP.getValue()];
+        mayJump = onGround && !this.isPressed(MarioActions.JUMP);
 
         if (Math.abs(xa) < 0.5f) {
             xa = 0;
@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -18,6 +20,22 @@ public class Mushroom extends MarioSprite {
 
     public Mushroom(boolean visuals, float x, float y) {
         super(x, y, SpriteType.MUSHROOM);
+        this.initialize(visuals);
+    }
+
+    public static Mushroom obtain(boolean visuals, float x, float y) {
+        Mushroom sprite = MarioPool.get().obtain(Mushroom.class);
+        if (sprite == null) {
+            return new Mushroom(visuals, x, y);
+        }
+        sprite.reset(x, y, SpriteType.MUSHROOM);
+        sprite.initialize(visuals);
+        return sprite;
+    }
+
+    private void initialize(boolean visuals) {
+        this.onGround = false;
+        this.graphics = null;
         this.width = 4;
         this.height = 12;
         this.facing = 1;
@@ -34,7 +52,7 @@ public class Mushroom extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Mushroom m = new Mushroom(false, this.x, this.y);
+        Mushroom m = Mushroom.obtain(false, this.x, this.y);
         m.xa = this.xa;
         m.ya = this.ya;
         m.initialCode = this.initialCode;
@@ -46,6 +64,13 @@ public class Mushroom extends MarioSprite {
         return m;
     }
 
+    @Override
+    public long getStateHash() {
+        long hash = super.getStateHash();
+        hash = MarioStateHash.combine(hash, this.life);
+        return MarioStateHash.combine(hash, this.onGround);
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
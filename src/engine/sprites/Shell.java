@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioPool;
 import engine.core.MarioSprite;
+import engine.core.MarioStateHash;
 import engine.effects.DeathEffect;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -18,9 +20,24 @@ public class Shell extends MarioSprite {
 
     private MarioImage graphics;
 
-    public Shell(boolean visuals, float x, float y, int shellType, String spriteCode) {
+    public Shell(boolean visuals, float x, float y, int shellType, int spriteCode) {
         super(x, y, SpriteType.SHELL);
+        this.initialize(visuals, shellType, spriteCode);
+    }
+
+    public static Shell obtain(boolean visuals, float x, float y, int shellType, int spriteCode) {
+        Shell shell = MarioPool.get().obtain(Shell.class);
+        if (shell == null) {
+            return new Shell(visuals, x, y, shellType, spriteCode);
+        }
+        shell.reset(x, y, SpriteType.SHELL);
+        shell.initialize(visuals, shellType, spriteCode);
+        return shell;
+    }
 
+    private void initialize(boolean visuals, int shellType, int spriteCode) {
+        this.onGround = false;
+        this.graphics = null;
         this.width = 4;
         this.height = 12;
         this.facing = 0;
@@ -38,7 +55,7 @@ public class Shell extends MarioSprite {
 
     @Override
     public MarioSprite clone() {
-        Shell sprite = new Shell(false, this.x, this.y, this.shellType, this.initialCode);
+        Shell sprite = Shell.obtain(false, this.x, this.y, this.shellType, this.initialCode);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.width = this.width;
@@ -48,6 +65,13 @@ public class Shell extends MarioSprite {
         return sprite;
     }
 
+    @Override
+    public long getStateHash() {
+        long hash = super.getStateHash();
+        hash = MarioStateHash.combine(hash, this.shellType);
+        return MarioStateHash.combine(hash, this.onGround);
+    }
+
     @Override
     public void update() {
         if (!this.alive) return;
@@ -111,7 +135,7 @@ public class Shell extends MarioSprite {
                 xa = fireball.facing * 2;
                 ya = -5;
                 if (this.graphics != null) {
-                    this.world.addEffect(new DeathEffect(this.x, this.y, this.graphics.flipX, 41 + this.shellType, -5));
+                    this.world.addEffect(DeathEffect.obtain(this.x, this.y, this.graphics.flipX, 41 + this.shellType, -5));
                 }
                 this.world.removeSprite(this);
                 return true;